@@ -1,40 +1,453 @@
-package TruTooth;
-
-import javax.bluetooth.*;
-import javax.microedition.io.*;
-import java.io.*;
-
-public class TruTooth {
-	    private static final String TARGET_DEVICE_NAME = "MyBluetoothDevice"; 
-	    private static final int RECONNECT_DELAY_MS = 5000; //The 5000ms = 5 secs
-
-	public static void main(String[] args) {
-		// TODO Auto-generated method stub
-		private static final String TARGET_DEVICE_NAME = "MyBluetoothDevice";
-		private static final String int RECONNECT_DELAY_MS = 5000; // 5000ms = 5secs
-		
-		public static void main(String[] args) {
-			while (true) {
-				try {
-					RemoteDevice device = findDeviceByName(TARGET_DEVICE_NAME);
-					if (device != null) {
-						System.out.println("Device foumd: " + device.getBluetoothAddress());
-					}else {
-						System.out.println("Device not found. Retrying in 5 seconds.");
-						Thread.sleep(RECONNECT_DELAY_MS);
-					}
-					} catch (Exception e) {
-						System.err.println("Error: " + e.getMessage());
-						try {
-							Thread.sleep(RECONNECT_DELAY_MS);
-						}
-				} catch (Exception e) {
-					System.err.println("Error: " + e.getmessage());
-					Thread.sleep(RECONNECT_DELAY_MS);
-					}
-					} catch (InterruptedException ignored) {}
-			}
-		
-		}
-	}
-
+package TruTooth;
+
+import javax.bluetooth.*;
+import javax.microedition.io.Connector;
+import javax.microedition.io.StreamConnection;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import trutoothSim.Connection;
+import trutoothSim.DeviceId;
+import trutoothSim.DropListener;
+import trutoothSim.Notice;
+import trutoothSim.Scanner;
+import trutoothSim.TimerWheel;
+import trutoothSim.Transport;
+
+// the real-radio version of trutoothSim.ScannerSim, on JSR-82 (javax.bluetooth).
+// Devices we have met before are looked up in the stack's CACHED and PREKNOWN
+// lists first, so a reconnect doesn't pay for a full ~10 s inquiry; only when
+// that misses do we run an inquiry, asynchronously through a DiscoveryListener.
+// The radio runs one inquiry at a time, so every find that misses shares the
+// one in flight. Radio below plugs this into the trutoothSim Monitor as the
+// "jsr82" Transport.
+public class TruTooth implements Scanner {
+	private static final String TARGET_DEVICE_NAME = "MyBluetoothDevice";
+	private static final int RECONNECT_DELAY_MS = 5000; // 5000ms = 5 secs
+	private static final int SCAN_MS = 15000; // a GIAC inquiry is ~10 s, give it room
+	// the stack's calls block (name requests, Connector.open), so the async
+	// forms make them here rather than on the caller's thread
+	static final ExecutorService RADIO = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "jsr82-radio");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final DiscoveryAgent agent;
+	private final Notice notice;
+	// what we learned from earlier inquiries, keyed by address (no colons, upper case)
+	private final Map<String, RemoteDevice> known = new ConcurrentHashMap<>();
+	private final Map<String, String> names = new ConcurrentHashMap<>();
+	private Inquiry inquiry; // the one in flight, or null; guarded by this
+
+	public TruTooth(Notice notice) throws BluetoothStateException {
+		this(LocalDevice.getLocalDevice().getDiscoveryAgent(), notice);
+	}
+
+	// for tests, which script the stack through a stub DiscoveryAgent
+	TruTooth(DiscoveryAgent agent, Notice notice) {
+		this.agent = agent;
+		this.notice = notice;
+	}
+
+	// same contract as ScannerSim.find: the device, or null if not seen in time
+	@Override
+	public DeviceId find(String wantedName, String wantedAddr, int scanMs) throws InterruptedException {
+		RemoteDevice rd = lookup(wantedName, wantedAddr);
+		if (rd == null) {
+			CompletableFuture<RemoteDevice> f = inquire(wantedName, wantedAddr);
+			try {
+				rd = f.get(scanMs, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				f.cancel(false);
+				return null;
+			} catch (ExecutionException e) {
+				notice.warn("Inquiry failed: {}", e.getCause().getMessage());
+				return null;
+			}
+		}
+		return rd == null ? null : toDeviceId(rd);
+	}
+
+	// find with nothing on the caller's thread: the lookup and any name
+	// requests run on RADIO, the wait on the wheel. The wait is at least
+	// SCAN_MS: an inquiry cut shorter than that finds nothing.
+	@Override
+	public CompletableFuture<DeviceId> findAsync(String wantedName, String wantedAddr, int scanMs, TimerWheel wheel) {
+		CompletableFuture<DeviceId> result = new CompletableFuture<>();
+		RADIO.execute(() -> {
+			if (result.isDone()) return; // cancelled already
+			RemoteDevice rd = lookup(wantedName, wantedAddr);
+			if (rd != null) {
+				result.complete(toDeviceId(rd));
+				return;
+			}
+			CompletableFuture<RemoteDevice> f = inquire(wantedName, wantedAddr);
+			TimerWheel.Timeout deadline = wheel.schedule(Math.max(scanMs, SCAN_MS), () -> f.cancel(false));
+			f.whenCompleteAsync((found, e) -> {
+				deadline.cancel();
+				if (e instanceof CompletionException) e = e.getCause();
+				if (e != null && !(e instanceof CancellationException)) notice.warn("Inquiry failed: {}", e.getMessage());
+				result.complete(found == null ? null : toDeviceId(found));
+			}, RADIO);
+			result.whenComplete((d, e) -> {
+				if (result.isCancelled()) f.cancel(false);
+			});
+		});
+		return result;
+	}
+
+	// sight() does the waiting itself (threaded modes only): the inquiry takes
+	// as long as it takes
+	@Override
+	public long scanWindowMs(int scanMs) {
+		return 0;
+	}
+
+	@Override
+	public DeviceId sight(String wantedName, String wantedAddr) {
+		try {
+			return find(wantedName, wantedAddr, SCAN_MS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	// no radio traffic beyond maybe a name request: the stack's own lists plus ours
+	public RemoteDevice lookup(String wantedName, String wantedAddr) {
+		String addr = wantedAddr != null ? bare(wantedAddr) : null;
+		if (addr != null && known.containsKey(addr)) return known.get(addr);
+		for (int option : new int[] { DiscoveryAgent.CACHED, DiscoveryAgent.PREKNOWN }) {
+			RemoteDevice[] list = agent.retrieveDevices(option);
+			if (list == null) continue;
+			for (RemoteDevice rd : list) {
+				if (matches(rd, wantedName, addr)) return remember(rd);
+			}
+		}
+		if (addr == null) {
+			for (RemoteDevice rd : known.values()) {
+				if (matches(rd, wantedName, null)) return rd;
+			}
+		}
+		return null;
+	}
+
+	// joins the inquiry in flight, or starts a GIAC one, and returns at once;
+	// the future completes with the first matching device, or with null when
+	// the inquiry ends without one. The inquiry is cancelled once nobody is
+	// waiting on it any more: everyone was matched, or gave up (cancel()).
+	public CompletableFuture<RemoteDevice> inquire(String wantedName, String wantedAddr) {
+		Waiter w = new Waiter(wantedName, wantedAddr != null ? bare(wantedAddr) : null);
+		Inquiry q;
+		boolean start;
+		synchronized (this) {
+			start = inquiry == null;
+			if (start) inquiry = new Inquiry();
+			q = inquiry;
+			q.waiters.add(w);
+		}
+		w.result.whenComplete((rd, err) -> {
+			if (w.result.isCancelled()) q.leave(w);
+		});
+		if (start) q.start();
+		return w.result;
+	}
+
+	private static final class Waiter {
+		final String name, addr;
+		final CompletableFuture<RemoteDevice> result = new CompletableFuture<>();
+
+		Waiter(String name, String addr) {
+			this.name = name;
+			this.addr = addr;
+		}
+	}
+
+	// one GIAC inquiry and whoever is waiting on it. Futures are completed
+	// and the radio is called outside the lock.
+	private final class Inquiry implements DiscoveryListener {
+		final List<Waiter> waiters = new ArrayList<>(); // guarded by TruTooth.this
+		boolean over = false; // guarded by TruTooth.this
+
+		void start() {
+			Exception failed = null;
+			try {
+				if (!agent.startInquiry(DiscoveryAgent.GIAC, this)) failed = new IOException("inquiry did not start");
+			} catch (BluetoothStateException e) {
+				failed = e;
+			}
+			if (failed != null) fail(failed);
+		}
+
+		void leave(Waiter w) {
+			synchronized (TruTooth.this) {
+				if (!waiters.remove(w) || over || !waiters.isEmpty()) return;
+				end();
+			}
+			agent.cancelInquiry(this);
+		}
+
+		@Override
+		public void deviceDiscovered(RemoteDevice rd, DeviceClass cod) {
+			remember(rd); // every device heard, not just the ones asked for
+			String addr = rd.getBluetoothAddress().toUpperCase();
+			boolean byName;
+			synchronized (TruTooth.this) {
+				if (over) return;
+				byName = waiters.stream().anyMatch(w -> w.addr == null);
+			}
+			String name = byName ? nameOf(rd) : null; // may ask the device, so not under the lock
+			List<Waiter> found = new ArrayList<>();
+			boolean idle;
+			synchronized (TruTooth.this) {
+				if (over) return;
+				for (Waiter w : waiters) {
+					if (w.addr != null ? w.addr.equals(addr) : w.name != null && w.name.equals(name)) found.add(w);
+				}
+				waiters.removeAll(found);
+				idle = !found.isEmpty() && waiters.isEmpty();
+				if (idle) end();
+			}
+			for (Waiter w : found) w.result.complete(rd);
+			if (idle) agent.cancelInquiry(this);
+		}
+
+		@Override
+		public void inquiryCompleted(int discType) {
+			if (discType == INQUIRY_ERROR) {
+				fail(new IOException("inquiry error"));
+				return;
+			}
+			for (Waiter w : finish()) w.result.complete(null);
+		}
+
+		@Override
+		public void servicesDiscovered(int transID, ServiceRecord[] records) {}
+
+		@Override
+		public void serviceSearchCompleted(int transID, int respCode) {}
+
+		private void fail(Exception e) {
+			for (Waiter w : finish()) w.result.completeExceptionally(e);
+		}
+
+		// ends it and hands back whoever was still waiting
+		private List<Waiter> finish() {
+			synchronized (TruTooth.this) {
+				if (over) return List.of();
+				end();
+				List<Waiter> left = new ArrayList<>(waiters);
+				waiters.clear();
+				return left;
+			}
+		}
+
+		private void end() {
+			over = true;
+			if (inquiry == this) inquiry = null;
+		}
+	}
+
+	private boolean matches(RemoteDevice rd, String wantedName, String addr) {
+		if (addr != null) return addr.equals(rd.getBluetoothAddress().toUpperCase());
+		return wantedName != null && wantedName.equals(nameOf(rd));
+	}
+
+	private RemoteDevice remember(RemoteDevice rd) {
+		known.put(rd.getBluetoothAddress().toUpperCase(), rd);
+		return rd;
+	}
+
+	// asks the device only the first time (getFriendlyName(false) may still
+	// go to the radio if the stack has no name for it)
+	private String nameOf(RemoteDevice rd) {
+		String addr = rd.getBluetoothAddress().toUpperCase();
+		String name = names.get(addr);
+		if (name != null) return name;
+		try {
+			name = rd.getFriendlyName(false);
+		} catch (IOException e) {
+			return null;
+		}
+		if (name != null) names.put(addr, name);
+		return name;
+	}
+
+	private DeviceId toDeviceId(RemoteDevice rd) {
+		String name = nameOf(rd);
+		return DeviceId.of(name != null ? name : "?", rd.getBluetoothAddress());
+	}
+
+	// "AA:BB:CC:DD:EE:FF" -> "AABBCCDDEEFF", the JSR-82 form
+	static String bare(String addr) {
+		return addr.replace(":", "").toUpperCase();
+	}
+
+	// the JSR-82 stack as a trutoothSim Transport; jsr82.jar lists it in
+	// META-INF/services/trutoothSim.Transport (TrutoothSim/jsr82/resources)
+	public static class Radio implements Transport {
+		@Override
+		public String name() {
+			return "jsr82";
+		}
+
+		@Override
+		public Scanner scanner(Notice notice, TimerWheel wheel) {
+			try {
+				return new TruTooth(notice);
+			} catch (BluetoothStateException e) {
+				throw new IllegalStateException("No Bluetooth stack: " + e.getMessage(), e);
+			}
+		}
+
+		@Override
+		public Connection connection(Notice notice, TimerWheel wheel) {
+			return new RadioLink(notice, wheel);
+		}
+	}
+
+	// an RFCOMM (SPP) link. JSR-82 has no link-loss callback, so while
+	// connected we probe the stream on the wheel and turn a failure into
+	// a drop event, the same way ConnectionSim reports its drops; close()
+	// ends both the stream and the probing
+	public static class RadioLink implements Connection {
+		private static final long PROBE_MS = 1000;
+
+		private final Notice notice;
+		private final TimerWheel wheel;
+		private final List<DropListener> listeners = new CopyOnWriteArrayList<>();
+		private StreamConnection stream;
+		private InputStream in;
+		private DeviceId device;
+		private TimerWheel.Timeout probing;
+
+		public RadioLink(Notice notice, TimerWheel wheel) {
+			this.notice = notice;
+			this.wheel = wheel;
+		}
+
+		@Override
+		public boolean connect(DeviceId d) {
+			return attempt(d);
+		}
+
+		// attempt() blocks for as long as the stack takes to open the link
+		@Override
+		public long connectDelayMs() {
+			return 0;
+		}
+
+		@Override
+		public boolean attempt(DeviceId d) {
+			String url = "btspp://" + bare(d.address()) + ":1;authenticate=false;encrypt=false;master=false";
+			try {
+				StreamConnection c = (StreamConnection) Connector.open(url);
+				synchronized (this) {
+					close(); // a link we still held
+					stream = c;
+					in = c.openInputStream();
+					device = d;
+				}
+				notice.info("Connected to {}", d);
+				probe();
+				return true;
+			} catch (IOException e) {
+				notice.warn("Connect to {} failed: {}", d, e.getMessage());
+				return false;
+			}
+		}
+
+		// the open runs on RADIO and the wheel keeps the deadline; a link that
+		// opens after we gave up is closed again without a drop event
+		@Override
+		public CompletableFuture<Boolean> connectAsync(DeviceId d, long timeoutMs) {
+			CompletableFuture<Boolean> f = new CompletableFuture<>();
+			RADIO.execute(() -> {
+				if (f.isDone()) return;
+				boolean ok = attempt(d);
+				if (!f.complete(ok) && ok) close();
+			});
+			TimerWheel.Timeout deadline = wheel.schedule(timeoutMs, () ->
+				f.completeExceptionally(new TimeoutException("connect to " + d + " took over " + timeoutMs + " ms")));
+			f.whenComplete((ok, e) -> deadline.cancel());
+			return f;
+		}
+
+		@Override
+		public boolean isDisconnected() {
+			DeviceId d;
+			synchronized (this) {
+				if (stream == null) return true;
+				try {
+					in.available();
+					return false;
+				} catch (IOException e) {
+					close();
+					d = device;
+				}
+			}
+			notice.warn("Link drop happened.");
+			for (DropListener l : listeners) l.onDrop(d);
+			return true;
+		}
+
+		@Override
+		public void addDropListener(DropListener l) {
+			listeners.add(l);
+		}
+
+		@Override
+		public void removeDropListener(DropListener l) {
+			listeners.remove(l);
+		}
+
+		private synchronized void probe() {
+			if (probing != null) probing.cancel(); // one chain per link
+			probing = wheel.schedule(PROBE_MS, () -> {
+				if (!isDisconnected()) probe();
+			});
+		}
+
+		@Override
+		public synchronized void close() {
+			if (probing != null) probing.cancel();
+			probing = null;
+			if (stream == null) return;
+			try {
+				stream.close();
+			} catch (IOException ignore) {
+			}
+			stream = null;
+			in = null;
+		}
+	}
+
+	public static void main(String[] args) {
+		TruTooth tt;
+		try {
+			tt = new TruTooth(new Notice());
+		} catch (BluetoothStateException e) {
+			System.err.println("No Bluetooth stack: " + e.getMessage());
+			return;
+		}
+		while (true) {
+			try {
+				DeviceId device = tt.find(TARGET_DEVICE_NAME, null, SCAN_MS);
+				if (device != null) {
+					System.out.println("Device found: " + device.shortStr());
+				} else {
+					System.out.println("Device not found. Retrying in 5 seconds.");
+				}
+				Thread.sleep(RECONNECT_DELAY_MS);
+			} catch (InterruptedException e) {
+				return;
+			} catch (RuntimeException e) {
+				System.err.println("Error: " + e.getMessage());
+			}
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package trutoothSim.bench;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import trutoothSim.DeviceId;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeviceIdBench {
+    String name = "Speaker-1F";
+    String addr = "AA:BB:CC:DD:EE:FF";
+    DeviceId d = DeviceId.of(name, addr);
+    Map<DeviceId, Integer> byDevice = new HashMap<>();
+    long[] keys = new long[1 << 17]; // a power of two, for the & below
+    int next = 0;
+
+    @Setup
+    public void fill() {
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = 0x00_1A_7D_00_00_00L + i;
+            byDevice.put(DeviceId.of("Speaker-" + i, keys[i]), i);
+        }
+    }
+
+    @Benchmark
+    public DeviceId create() { return new DeviceId(name, addr); }
+
+    // the sighting path: parse, then hand back the device we already know
+    @Benchmark
+    public DeviceId intern() { return DeviceId.of(name, addr); }
+
+    @Benchmark
+    public long parse() { return DeviceId.parse(addr); }
+
+    @Benchmark
+    public String format() { return DeviceId.format(d.key()); }
+
+    @Benchmark
+    public int hash() { return d.hashCode(); }
+
+    // key -> interned device -> map entry, with nothing allocated
+    @Benchmark
+    public Integer lookup() {
+        long k = keys[next];
+        next = (next + 1) & (keys.length - 1);
+        return byDevice.get(DeviceId.lookup(k));
+    }
+
+    @Benchmark
+    public String shortStr() { return d.shortStr(); }
+}
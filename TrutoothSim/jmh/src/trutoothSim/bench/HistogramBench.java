@@ -0,0 +1,29 @@
+package trutoothSim.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import trutoothSim.Histogram;
+import trutoothSim.Latencies;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistogramBench {
+    Histogram h = Latencies.fleet().connect;
+    long v = 0;
+
+    // run with -prof gc to see it stays at 0 B/op
+    @Benchmark
+    public Histogram record() {
+        h.record(200 + (v++ & 511));
+        return h;
+    }
+
+    @Benchmark
+    public long p99() { return h.percentile(99); }
+}
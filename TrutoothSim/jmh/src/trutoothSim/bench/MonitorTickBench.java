@@ -0,0 +1,49 @@
+package trutoothSim.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import trutoothSim.Monitor;
+import trutoothSim.SimClock;
+import trutoothSim.SimRandom;
+
+// the real Monitor in discrete-event mode: a fleet of Links on one SimClock,
+// and each op moves sim time on by STEP_MS, running every scan, connect,
+// drop and backoff step that falls due. Setup plays out the first minute so
+// the fleet is past its initial scans and in the connect/drop steady state.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MonitorTickBench {
+    static final long STEP_MS = 100;
+
+    @Param({"1000", "10000"})
+    int fleet;
+
+    SimClock clock;
+    Monitor monitor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        clock = new SimClock(10, Quiet.NOTICE);
+        monitor = new Monitor(Quiet.NOTICE, clock, new SimRandom(1));
+        for (int i = 0; i < fleet; i++) monitor.add("Speaker-" + i, null);
+        monitor.start();
+        clock.advance(60_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws InterruptedException {
+        monitor.stop();
+    }
+
+    @Benchmark
+    public int tick() {
+        clock.advance(STEP_MS);
+        return clock.wheel().size();
+    }
+}
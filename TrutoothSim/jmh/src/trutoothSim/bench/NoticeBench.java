@@ -0,0 +1,38 @@
+package trutoothSim.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import trutoothSim.DeviceId;
+import trutoothSim.Notice;
+
+// what a log call costs the caller; the printing happens on Notice's thread
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoticeBench {
+    PrintStream nowhere = new PrintStream(OutputStream.nullOutputStream());
+    Notice off = new Notice(Notice.Level.WARN, 8192, true, nowhere);
+    Notice on = new Notice(Notice.Level.INFO, 8192, true, nowhere);
+    DeviceId d = new DeviceId("MySpeaker", "AA:BB:CC:DD:EE:FF");
+
+    // each Notice has its own writer thread; don't leave them running
+    @TearDown(Level.Trial)
+    public void close() {
+        off.close();
+        on.close();
+    }
+
+    @Benchmark
+    public void disabled() { off.info("Connected to {}", d); }
+
+    @Benchmark
+    @Threads(4)
+    public void enabled() { on.info("Connected to {}", d); }
+}
@@ -0,0 +1,22 @@
+package trutoothSim.bench;
+
+import trutoothSim.Clock;
+import trutoothSim.Notice;
+
+// stand-ins so benchmarks time our code, not the console or Thread.sleep
+final class Quiet {
+    private Quiet() {}
+
+    static final Notice NOTICE = new Notice(Notice.Level.OFF);
+
+    // a clock that jumps forward instead of sleeping
+    static final class StepClock implements Clock {
+        long now = 0;
+
+        @Override
+        public long now() { return now; }
+
+        @Override
+        public void sleep(long ms) { now += ms; }
+    }
+}
@@ -0,0 +1,42 @@
+package trutoothSim.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import trutoothSim.Reconnect;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReconnectBench {
+    @Param({"0", "2", "10"})
+    int fails;
+
+    @Param({"stepped", "exponential", "decorrelated", "adaptive"})
+    String policy;
+
+    Reconnect backoff;
+
+    @Setup
+    public void setup() {
+        backoff = new Reconnect(Reconnect.parse(policy), new SplittableRandom(1));
+        for (int i = 0; i < fails; i++) backoff.onFailure();
+    }
+
+    @Benchmark
+    public long nextDelayMs() { return backoff.nextDelayMs(); }
+
+    // fail, ask, recover: what one drop does to the backoff
+    @Benchmark
+    public long failThenRecover() {
+        backoff.onFailure();
+        long d = backoff.nextDelayMs();
+        backoff.onSuccess();
+        return d;
+    }
+}
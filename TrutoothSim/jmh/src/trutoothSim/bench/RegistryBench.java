@@ -0,0 +1,67 @@
+package trutoothSim.bench;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import trutoothSim.DeviceRegistry;
+
+// 1M devices by packed address: DeviceRegistry against the boxed maps
+// we'd otherwise reach for. Lookups hit random keys, like drop events do.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class RegistryBench {
+    static final int N = 1_000_000;
+
+    long[] keys = new long[N];
+    DeviceRegistry<Object> registry = new DeviceRegistry<>(N, 64);
+    Map<Long, Object> hashMap = new HashMap<>();
+    Map<Long, Object> chm = new ConcurrentHashMap<>();
+    Object state = new Object();
+
+    @Setup
+    public void fill() {
+        for (int i = 0; i < N; i++) {
+            keys[i] = 0x00_1A_7D_00_00_00L + i * 7919L; // spread over the address space
+            registry.put(keys[i], state);
+            hashMap.put(keys[i], state);
+            chm.put(keys[i], state);
+        }
+    }
+
+    long key() { return keys[ThreadLocalRandom.current().nextInt(N)]; }
+
+    @Benchmark
+    public Object registryGet() { return registry.get(key()); }
+
+    @Benchmark
+    public Object hashMapGet() { return hashMap.get(key()); }
+
+    @Benchmark
+    public Object chmGet() { return chm.get(key()); }
+
+    @Benchmark
+    @Threads(4)
+    public Object registryGetContended() { return registry.get(key()); }
+
+    @Benchmark
+    @Threads(4)
+    public Object chmGetContended() { return chm.get(key()); }
+
+    // overwrite an existing entry, as a state change would
+    @Benchmark
+    @Threads(4)
+    public Object registryPut() { return registry.put(key(), state); }
+
+    @Benchmark
+    @Threads(4)
+    public Object chmPut() { return chm.put(key(), state); }
+}
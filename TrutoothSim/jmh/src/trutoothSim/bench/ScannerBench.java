@@ -0,0 +1,29 @@
+package trutoothSim.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import trutoothSim.DeviceId;
+import trutoothSim.ScannerSim;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScannerBench {
+    ScannerSim scanner = new ScannerSim(Quiet.NOTICE, new Quiet.StepClock());
+
+    // half the calls see nothing; the rest build a name and look up its address
+    @Benchmark
+    public DeviceId sightRandom() { return scanner.sight(null, null); }
+
+    @Benchmark
+    public DeviceId sightKnown() { return scanner.sight("MySpeaker", "AA:BB:CC:DD:EE:FF"); }
+
+    // a whole find() with the scan window's sleep taken out
+    @Benchmark
+    public DeviceId find() throws InterruptedException { return scanner.find("MySpeaker", null, 3000); }
+}
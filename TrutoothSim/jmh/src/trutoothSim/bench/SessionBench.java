@@ -0,0 +1,48 @@
+package trutoothSim.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import trutoothSim.DeviceId;
+import trutoothSim.SessionData;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionBench {
+    SessionData session = new SessionData(new DeviceId("MySpeaker", "AA:BB:CC:DD:EE:FF"));
+
+    // the bookkeeping for one drop and one reconnect
+    @Benchmark
+    public SessionData dropAndReconnect() {
+        session.drop();
+        session.reconnectAttempt();
+        session.reconnected();
+        return session;
+    }
+
+    // one session counted from several scheduler threads at once
+    @State(Scope.Benchmark)
+    public static class Shared {
+        SessionData session = new SessionData(new DeviceId("MySpeaker", "AA:BB:CC:DD:EE:FF"));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public SessionData contended(Shared shared) {
+        shared.session.drop();
+        shared.session.reconnectAttempt();
+        shared.session.reconnected();
+        return shared.session;
+    }
+
+    @Benchmark
+    public SessionData.Snapshot snapshot() { return session.snapshot(); }
+
+    @Benchmark
+    public String summary() { return session.summary(); }
+}
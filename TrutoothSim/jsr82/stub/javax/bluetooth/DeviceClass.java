@@ -0,0 +1,9 @@
+package javax.bluetooth;
+
+public class DeviceClass {
+    private final int record;
+
+    public DeviceClass(int record) { this.record = record; }
+
+    public int getMajorDeviceClass() { return record & 0x1F00; }
+}
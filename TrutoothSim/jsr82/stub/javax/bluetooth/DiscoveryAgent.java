@@ -0,0 +1,21 @@
+package javax.bluetooth;
+
+// does nothing on its own, like a radio with nothing around; tests
+// subclass it to script what the stack reports
+public class DiscoveryAgent {
+    public static final int NOT_DISCOVERABLE = 0;
+    public static final int GIAC = 0x9E8B33;
+    public static final int LIAC = 0x9E8B00;
+    public static final int CACHED = 0x00;
+    public static final int PREKNOWN = 0x01;
+
+    protected DiscoveryAgent() {}
+
+    public RemoteDevice[] retrieveDevices(int option) { return null; }
+
+    public boolean startInquiry(int accessCode, DiscoveryListener listener) throws BluetoothStateException {
+        return false;
+    }
+
+    public boolean cancelInquiry(DiscoveryListener listener) { return false; }
+}
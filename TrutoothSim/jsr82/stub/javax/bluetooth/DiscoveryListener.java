@@ -0,0 +1,15 @@
+package javax.bluetooth;
+
+public interface DiscoveryListener {
+    int INQUIRY_COMPLETED = 0x00;
+    int INQUIRY_TERMINATED = 0x05;
+    int INQUIRY_ERROR = 0x07;
+
+    void deviceDiscovered(RemoteDevice btDevice, DeviceClass cod);
+
+    void inquiryCompleted(int discType);
+
+    void servicesDiscovered(int transID, ServiceRecord[] servRecord);
+
+    void serviceSearchCompleted(int transID, int respCode);
+}
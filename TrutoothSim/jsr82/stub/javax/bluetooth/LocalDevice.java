@@ -0,0 +1,13 @@
+package javax.bluetooth;
+
+// there is never a stack behind the stub; code under test takes its
+// DiscoveryAgent some other way
+public class LocalDevice {
+    private LocalDevice() {}
+
+    public static LocalDevice getLocalDevice() throws BluetoothStateException {
+        throw new BluetoothStateException("no Bluetooth stack (javax.bluetooth stub)");
+    }
+
+    public DiscoveryAgent getDiscoveryAgent() { return null; }
+}
@@ -0,0 +1,14 @@
+package javax.bluetooth;
+
+import java.io.IOException;
+
+public class RemoteDevice {
+    private final String address;
+
+    // "AABBCCDDEEFF", as the stack reports it
+    protected RemoteDevice(String address) { this.address = address; }
+
+    public final String getBluetoothAddress() { return address; }
+
+    public String getFriendlyName(boolean alwaysAsk) throws IOException { return null; }
+}
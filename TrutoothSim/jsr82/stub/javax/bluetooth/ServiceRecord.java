@@ -0,0 +1,3 @@
+package javax.bluetooth;
+
+public interface ServiceRecord {}
@@ -0,0 +1,12 @@
+package javax.microedition.io;
+
+import java.io.IOException;
+
+// nothing to connect to behind the stub
+public class Connector {
+    private Connector() {}
+
+    public static Connection open(String name) throws IOException {
+        throw new IOException("no connections in the javax.bluetooth stub: " + name);
+    }
+}
@@ -0,0 +1,8 @@
+package javax.microedition.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface StreamConnection extends Connection {
+    InputStream openInputStream() throws IOException;
+}
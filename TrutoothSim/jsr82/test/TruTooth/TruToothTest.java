@@ -0,0 +1,259 @@
+package TruTooth;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import javax.bluetooth.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+import trutoothSim.DeviceId;
+import trutoothSim.Notice;
+import trutoothSim.TimerWheel;
+import trutoothSim.Transport;
+
+class TruToothTest {
+	static final Notice QUIET = new Notice(Notice.Level.OFF);
+
+	// the stack as the tests script it: what it has cached, and what
+	// happens when an inquiry starts
+	static class FakeAgent extends DiscoveryAgent {
+		RemoteDevice[] cached, preknown;
+		boolean startOk = true;
+		BluetoothStateException startFails;
+		Consumer<DiscoveryListener> onStart = l -> {};
+		Consumer<DiscoveryListener> onCancel = l -> {};
+		final List<DiscoveryListener> started = new ArrayList<>();
+		final List<DiscoveryListener> cancelled = new ArrayList<>();
+
+		@Override
+		public RemoteDevice[] retrieveDevices(int option) {
+			return option == CACHED ? cached : option == PREKNOWN ? preknown : null;
+		}
+
+		@Override
+		public boolean startInquiry(int accessCode, DiscoveryListener l) throws BluetoothStateException {
+			if (startFails != null) throw startFails;
+			if (!startOk) return false;
+			started.add(l);
+			onStart.accept(l);
+			return true;
+		}
+
+		@Override
+		public boolean cancelInquiry(DiscoveryListener l) {
+			cancelled.add(l);
+			onCancel.accept(l);
+			return true;
+		}
+	}
+
+	static RemoteDevice device(String addr, String name) {
+		return new RemoteDevice(addr) {
+			@Override
+			public String getFriendlyName(boolean alwaysAsk) {
+				return name;
+			}
+		};
+	}
+
+	@Test
+	void cachedDeviceIsFoundWithoutAnInquiry() throws Exception {
+		FakeAgent agent = new FakeAgent();
+		agent.cached = new RemoteDevice[] { device("001122334455", "Other"), device("AABBCCDDEEFF", "Speaker") };
+		TruTooth tt = new TruTooth(agent, QUIET);
+
+		DeviceId d = tt.find("Speaker", null, 100);
+
+		assertNotNull(d);
+		assertEquals("Speaker", d.name);
+		assertEquals("AA:BB:CC:DD:EE:FF", d.address());
+		assertTrue(agent.started.isEmpty());
+	}
+
+	@Test
+	void preknownDeviceIsFoundByAddressWithoutAnInquiry() throws Exception {
+		FakeAgent agent = new FakeAgent();
+		agent.preknown = new RemoteDevice[] { device("AABBCCDDEEFF", "Speaker") };
+		TruTooth tt = new TruTooth(agent, QUIET);
+
+		DeviceId d = tt.find(null, "aa:bb:cc:dd:ee:ff", 100);
+
+		assertNotNull(d);
+		assertEquals("AA:BB:CC:DD:EE:FF", d.address());
+		assertTrue(agent.started.isEmpty());
+	}
+
+	@Test
+	void inquiryCompletesOnTheFirstMatchAndCancelsTheRest() {
+		FakeAgent agent = new FakeAgent();
+		TruTooth tt = new TruTooth(agent, QUIET);
+
+		CompletableFuture<RemoteDevice> f = tt.inquire("Speaker", null);
+		assertEquals(1, agent.started.size());
+		DiscoveryListener l = agent.started.get(0);
+
+		l.deviceDiscovered(device("001122334455", "Other"), null);
+		assertFalse(f.isDone());
+		RemoteDevice match = device("AABBCCDDEEFF", "Speaker");
+		l.deviceDiscovered(match, null);
+		l.deviceDiscovered(device("665544332211", "Speaker"), null); // too late
+		l.inquiryCompleted(DiscoveryListener.INQUIRY_TERMINATED);
+
+		assertSame(match, f.join());
+		assertEquals(List.of(l), agent.cancelled);
+	}
+
+	@Test
+	void findsThatMissShareOneInquiry() {
+		FakeAgent agent = new FakeAgent();
+		TruTooth tt = new TruTooth(agent, QUIET);
+
+		CompletableFuture<RemoteDevice> speaker = tt.inquire("Speaker", null);
+		CompletableFuture<RemoteDevice> other = tt.inquire(null, "00:11:22:33:44:55");
+		assertEquals(1, agent.started.size());
+		DiscoveryListener l = agent.started.get(0);
+
+		l.deviceDiscovered(device("AABBCCDDEEFF", "Speaker"), null);
+		assertTrue(speaker.isDone());
+		assertTrue(agent.cancelled.isEmpty()); // other still waits on it
+		l.deviceDiscovered(device("001122334455", "Other"), null);
+
+		assertEquals("001122334455", other.join().getBluetoothAddress());
+		assertEquals(List.of(l), agent.cancelled);
+	}
+
+	@Test
+	void findAsyncCompletesFromTheInquiry() {
+		FakeAgent agent = new FakeAgent();
+		agent.onStart = l -> l.deviceDiscovered(device("AABBCCDDEEFF", "Speaker"), null);
+		TimerWheel wheel = new TimerWheel(10, null, QUIET);
+		try {
+			TruTooth tt = new TruTooth(agent, QUIET);
+
+			DeviceId d = tt.findAsync("Speaker", null, 50, wheel).join();
+
+			assertEquals("AA:BB:CC:DD:EE:FF", d.address());
+		} finally {
+			wheel.stop();
+		}
+	}
+
+	@Test
+	void findAsyncAsksTheRadioOffTheCallersThread() {
+		FakeAgent agent = new FakeAgent();
+		List<Thread> askedOn = new ArrayList<>();
+		agent.cached = new RemoteDevice[] { new RemoteDevice("AABBCCDDEEFF") {
+			@Override
+			public String getFriendlyName(boolean alwaysAsk) {
+				askedOn.add(Thread.currentThread()); // a blocking name request on a real stack
+				return "Speaker";
+			}
+		} };
+		TimerWheel wheel = new TimerWheel(10, null, QUIET);
+		try {
+			TruTooth tt = new TruTooth(agent, QUIET);
+
+			assertNotNull(tt.findAsync("Speaker", null, 50, wheel).join());
+
+			assertFalse(askedOn.isEmpty());
+			assertFalse(askedOn.contains(Thread.currentThread()));
+		} finally {
+			wheel.stop();
+		}
+	}
+
+	@Test
+	void cancellingFindAsyncCancelsTheInquiry() {
+		FakeAgent agent = new FakeAgent(); // never reports anything
+		CompletableFuture<DiscoveryListener> started = new CompletableFuture<>();
+		CompletableFuture<DiscoveryListener> cancelled = new CompletableFuture<>();
+		agent.onStart = started::complete;
+		agent.onCancel = cancelled::complete;
+		TimerWheel wheel = new TimerWheel(10, null, QUIET);
+		try {
+			TruTooth tt = new TruTooth(agent, QUIET);
+
+			CompletableFuture<DeviceId> f = tt.findAsync("Speaker", null, 50, wheel);
+			DiscoveryListener l = started.join();
+			assertTrue(f.cancel(false)); // what Link.stop() does
+
+			assertSame(l, cancelled.orTimeout(5, TimeUnit.SECONDS).join()); // on the radio thread
+		} finally {
+			wheel.stop();
+		}
+	}
+
+	@Test
+	void inquiryThatEndsWithoutAMatchGivesNull() throws Exception {
+		FakeAgent agent = new FakeAgent();
+		agent.onStart = l -> {
+			l.deviceDiscovered(device("001122334455", "Other"), null);
+			l.inquiryCompleted(DiscoveryListener.INQUIRY_COMPLETED);
+		};
+		TruTooth tt = new TruTooth(agent, QUIET);
+
+		assertNull(tt.find("Speaker", null, 1000));
+		assertTrue(agent.cancelled.isEmpty());
+	}
+
+	@Test
+	void findTimingOutCancelsTheInquiry() throws Exception {
+		FakeAgent agent = new FakeAgent(); // never reports anything
+		TruTooth tt = new TruTooth(agent, QUIET);
+
+		assertNull(tt.find("Speaker", null, 50));
+
+		assertEquals(1, agent.started.size());
+		assertEquals(agent.started, agent.cancelled);
+	}
+
+	@Test
+	void inquiryErrorGivesNull() throws Exception {
+		FakeAgent agent = new FakeAgent();
+		agent.onStart = l -> l.inquiryCompleted(DiscoveryListener.INQUIRY_ERROR);
+		TruTooth tt = new TruTooth(agent, QUIET);
+
+		assertNull(tt.find("Speaker", null, 1000));
+	}
+
+	@Test
+	void inquiryThatDoesNotStartGivesNull() throws Exception {
+		FakeAgent agent = new FakeAgent();
+		agent.startOk = false;
+		assertNull(new TruTooth(agent, QUIET).find("Speaker", null, 1000));
+
+		agent.startOk = true;
+		agent.startFails = new BluetoothStateException("busy");
+		TruTooth tt = new TruTooth(agent, QUIET);
+		assertNull(tt.find("Speaker", null, 1000));
+		agent.startFails = null;
+		tt.inquire("Speaker", null);
+		assertEquals(1, agent.started.size()); // the failed one is not in the way
+	}
+
+	@Test
+	void asyncConnectThatCannotOpenGivesFalse() {
+		TimerWheel wheel = new TimerWheel(10, null, QUIET);
+		try {
+			TruTooth.RadioLink link = new TruTooth.RadioLink(QUIET, wheel);
+			DeviceId d = DeviceId.of("Speaker", "AA:BB:CC:DD:EE:FF");
+
+			assertFalse(link.connectAsync(d, 5000).join()); // the stub's Connector always fails
+			assertTrue(link.isDisconnected());
+		} finally {
+			wheel.stop();
+		}
+	}
+
+	@Test
+	void radioIsFoundThroughServiceLoader() {
+		Transport t = Transport.load("jsr82");
+
+		assertInstanceOf(TruTooth.Radio.class, t);
+	}
+}
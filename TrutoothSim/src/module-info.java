@@ -1,8 +1,13 @@
-/**
- * 
- */
-/**
- * 
- */
-module TrutoothSim {
+/**
+ * 
+ */
+/**
+ * 
+ */
+module TrutoothSim {
+    requires java.management; // GC counters for the soak
+    exports trutoothSim;
+
+    uses trutoothSim.Transport;
+    provides trutoothSim.Transport with trutoothSim.SimTransport;
 }
\ No newline at end of file
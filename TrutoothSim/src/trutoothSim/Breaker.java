@@ -0,0 +1,85 @@
+package trutoothSim;
+
+// per-device circuit breaker around connect. CLOSED: connect as usual,
+// counting failures in a row. After threshold of them it goes OPEN: no
+// connects at all for openMs, then the link only listens for the device
+// in a scan window, which costs nothing on the device's side. A sighting
+// moves it to HALF_OPEN, where one trial connect decides: success closes
+// it, failure opens it again for twice as long (up to 8x). A device that
+// is really gone therefore costs one scan window per period instead of a
+// 200-500 ms connect every 10 s.
+// One link steps its breaker, so nothing here is locked; state is
+// volatile for status readers.
+public class Breaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final int MAX_STRETCH = 8;
+
+    private final int threshold;
+    private final long baseOpenMs;
+
+    private volatile State state = State.CLOSED;
+    private int fails = 0;
+    private long openMs;
+    private long trips = 0, probes = 0;
+
+    public Breaker(int threshold, long openMs) {
+        this.threshold = Math.max(1, threshold);
+        this.baseOpenMs = Math.max(1, openMs);
+        this.openMs = this.baseOpenMs;
+    }
+
+    // "FAILS:OPEN_MS", e.g. "5:30000" (the defaults)
+    public static Breaker parse(String spec) {
+        String[] p = spec.split(":");
+        int fails = p[0].isEmpty() ? 5 : Integer.parseInt(p[0]);
+        long openMs = p.length > 1 ? Long.parseLong(p[1]) : 30_000;
+        return new Breaker(fails, openMs);
+    }
+
+    // a connect failed; true if that opened the breaker
+    public boolean failed() {
+        if (state == State.HALF_OPEN) {
+            openMs = Math.min(openMs * 2, baseOpenMs * MAX_STRETCH);
+            open();
+            return true;
+        }
+        if (state == State.CLOSED && ++fails >= threshold) {
+            open();
+            return true;
+        }
+        return false;
+    }
+
+    public void succeeded() {
+        state = State.CLOSED;
+        fails = 0;
+        openMs = baseOpenMs;
+    }
+
+    // the probe scan saw the device (or didn't): let one trial connect through
+    public boolean sighted(boolean seen) {
+        probes++;
+        if (state != State.OPEN) return true;
+        if (!seen) return false; // stay open another period
+        state = State.HALF_OPEN;
+        return true;
+    }
+
+    public State state() { return state; }
+    public long openMs() { return openMs; }
+    public long trips() { return trips; }
+    public long probes() { return probes; }
+
+    @Override
+    public String toString() {
+        return "breaker " + state + " (" + threshold + " fails, open " + openMs + " ms, tripped "
+             + trips + "x, " + probes + " probes)";
+    }
+
+    private void open() {
+        state = State.OPEN;
+        fails = 0;
+        trips++;
+    }
+}
@@ -0,0 +1,17 @@
+package trutoothSim;
+
+// where the sims get the time and do their waiting. SYSTEM is the real
+// thing; benchmarks pass one that doesn't sleep so they measure our code.
+public interface Clock {
+    long now();
+
+    void sleep(long ms) throws InterruptedException;
+
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long now() { return System.currentTimeMillis(); }
+
+        @Override
+        public void sleep(long ms) throws InterruptedException { Thread.sleep(ms); }
+    };
+}
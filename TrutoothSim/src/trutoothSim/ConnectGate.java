@@ -0,0 +1,168 @@
+package trutoothSim;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// fleet-wide admission control for connect attempts. Every link asks
+// before it connects; an attempt goes ahead only if the token bucket has a
+// token (rate limit, with a small burst) and fewer than limit attempts are
+// in flight. Everyone else waits in FIFO order and is let in as tokens
+// refill or attempts finish. The concurrency limit adapts AIMD-style to
+// the success rate: +1 per limit's worth of good connects, x0.7 (at most
+// once a second) when the smoothed success rate sinks below target.
+public class ConnectGate {
+    private static final double ALPHA = 0.02;   // EWMA weight of one outcome
+    private static final double TARGET = 0.6;   // below this we are overloading the radio
+    private static final long DECREASE_EVERY_MS = 1000;
+
+    private final TimerWheel wheel;
+    private final Clock clock;
+    private final double perMs;
+    private final double burst;
+    private final int minLimit, maxLimit;
+
+    // guarded by this
+    private final ArrayDeque<Runnable> waiting = new ArrayDeque<>();
+    private double tokens;
+    private long refilledAt;
+    private double limit;
+    private int inFlight;
+    private double successRate = 1.0;
+    private long lastDecrease = -DECREASE_EVERY_MS;
+    private boolean wakeup; // a refill timer is pending
+    private long admitted, queued, peakQueue, peakInFlight;
+
+    public ConnectGate(TimerWheel wheel, double perSec, int minLimit, int maxLimit) {
+        this.wheel = wheel;
+        this.clock = wheel.clock();
+        this.perMs = perSec / 1000.0;
+        this.burst = Math.max(1, perSec / 10); // 100 ms worth
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.tokens = burst;
+        this.refilledAt = clock.now();
+        this.limit = this.maxLimit;
+    }
+
+    // "RATE:MAX" (per second, in flight), e.g. "50:32"; the limit adapts
+    // between MAX/8 and MAX
+    public static ConnectGate parse(String spec, TimerWheel wheel) {
+        String[] p = spec.split(":");
+        double rate = Double.parseDouble(p[0]);
+        int max = p.length > 1 ? Integer.parseInt(p[1]) : 32;
+        return new ConnectGate(wheel, rate, Math.max(1, max / 8), max);
+    }
+
+    // runs go (perhaps right here) once the attempt may start; whoever is
+    // admitted must call finished() or abandoned() exactly once
+    public void admit(Runnable go) {
+        synchronized (this) {
+            refill();
+            if (waiting.isEmpty() && mayStart()) {
+                start();
+            } else {
+                queued++;
+                waiting.add(go);
+                peakQueue = Math.max(peakQueue, waiting.size());
+                go = null;
+                scheduleWakeup();
+            }
+        }
+        if (go != null) go.run();
+    }
+
+    // the blocking form, for thread-per-link modes
+    public void acquire() throws InterruptedException {
+        CountDownLatch in = new CountDownLatch(1);
+        AtomicInteger state = new AtomicInteger(); // 0 waiting, 1 let in, 2 gave up
+        admit(() -> {
+            if (state.compareAndSet(0, 1)) in.countDown();
+            else abandoned();
+        });
+        try {
+            in.await();
+        } catch (InterruptedException e) {
+            if (!state.compareAndSet(0, 2)) abandoned(); // let in just now: hand it back
+            throw e;
+        }
+    }
+
+    public void finished(boolean ok) {
+        synchronized (this) {
+            inFlight--;
+            successRate += ALPHA * ((ok ? 1.0 : 0.0) - successRate);
+            long now = clock.now();
+            if (ok && successRate >= TARGET) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            } else if (!ok && successRate < TARGET && now - lastDecrease >= DECREASE_EVERY_MS) {
+                limit = Math.max(minLimit, limit * 0.7);
+                lastDecrease = now;
+            }
+        }
+        drain();
+    }
+
+    // admitted but never attempted (the link was stopped); no verdict
+    public void abandoned() {
+        synchronized (this) {
+            inFlight--;
+        }
+        drain();
+    }
+
+    public synchronized int inFlight() { return inFlight; }
+    public synchronized int waiting() { return waiting.size(); }
+    public synchronized int limit() { return (int) limit; }
+
+    @Override
+    public synchronized String toString() {
+        return "gate " + inFlight + "/" + (int) limit + " in flight, " + waiting.size() + " waiting"
+             + " (admitted " + admitted + ", queued " + queued + ", peak queue " + peakQueue
+             + ", peak in flight " + peakInFlight + ", ok " + Math.round(successRate * 100) + "%)";
+    }
+
+    private boolean mayStart() { return tokens >= 1 && inFlight < (int) limit; }
+
+    private void start() {
+        tokens--;
+        inFlight++;
+        admitted++;
+        peakInFlight = Math.max(peakInFlight, inFlight);
+    }
+
+    private void refill() {
+        long now = clock.now();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * perMs);
+        refilledAt = now;
+    }
+
+    // let in as many waiters as tokens and slots allow
+    private void drain() {
+        List<Runnable> go = new ArrayList<>();
+        synchronized (this) {
+            refill();
+            while (!waiting.isEmpty() && mayStart()) {
+                start();
+                go.add(waiting.poll());
+            }
+            scheduleWakeup();
+        }
+        for (Runnable r : go) r.run();
+    }
+
+    // out of tokens with people waiting: look again when the next one is due
+    private void scheduleWakeup() {
+        if (wakeup || waiting.isEmpty() || tokens >= 1) return;
+        wakeup = true;
+        long ms = (long) Math.ceil((1 - tokens) / perMs);
+        wheel.schedule(Math.max(1, ms), () -> {
+            synchronized (this) {
+                wakeup = false;
+            }
+            drain();
+        });
+    }
+}
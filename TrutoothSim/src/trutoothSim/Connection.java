@@ -0,0 +1,28 @@
+package trutoothSim;
+
+import java.util.concurrent.CompletableFuture;
+
+// one link to one device; ConnectionSim is the simulated one. Drops are
+// pushed to DropListeners as they happen, isDisconnected() is for pollers.
+public interface Connection {
+    boolean connect(DeviceId d);
+
+    // how long the caller should wait before attempt(); 0 if attempt() blocks itself
+    long connectDelayMs();
+
+    boolean attempt(DeviceId d);
+
+    // connect without holding the caller's thread: completes with the
+    // result, or fails with a TimeoutException after timeoutMs. cancel()
+    // gives up, and the device is not left connected behind our back.
+    CompletableFuture<Boolean> connectAsync(DeviceId d, long timeoutMs);
+
+    // hang up and stop watching the link; no drop is reported
+    void close();
+
+    boolean isDisconnected();
+
+    void addDropListener(DropListener l);
+
+    void removeDropListener(DropListener l);
+}
@@ -1,43 +1,159 @@
-package trutoothSim;
-
-import java.util.Random;
-
-public class ConnectionSim {
-    private final Notice notice;
-    private final Random rng = new Random();
-    private boolean connected = false;
-    private long dropAt = -1L;
-
-    public ConnectionSim(Notice notice) {
-        this.notice = notice;
-    }
-
-    public boolean connect(DeviceId d) {
-        // simple 85% success rate + small delay
-        try { Thread.sleep(200 + rng.nextInt(300)); } catch (InterruptedException ignore) {}
-        boolean ok = rng.nextDouble() < 0.85;
-        if (ok) {
-            connected = true;
-            scheduleDrop(); // plan a random future drop
-            System.out.println("Connected to " + d.shortStr());
-        }
-        return ok;
-    }
-
-    public boolean isDisconnected() {
-        if (connected && dropAt > 0 && System.currentTimeMillis() >= dropAt) {
-            connected = false;
-            dropAt = -1L;
-            notice.warn("Link drop happened.");
-            return true;
-        }
-        return !connected;
-    }
-
-    private void scheduleDrop() {
-        long now = System.currentTimeMillis();
-        // will drop 5–12 seconds from now
-        long delay = 5_000 + rng.nextInt(8_000);
-        dropAt = now + delay;
-    }
-}
+package trutoothSim;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.random.RandomGenerator;
+
+public class ConnectionSim implements Connection {
+    private final Notice notice;
+    private final TimerWheel timer; // null: drops are only noticed by polling
+    private final Clock clock;
+    private final RandomGenerator rng; // ours alone: link steps never overlap
+    private final List<DropListener> listeners = new CopyOnWriteArrayList<>();
+    private boolean connected = false;
+    private long dropAt = -1L;
+    private TimerWheel.Timeout pendingDrop;
+    private DeviceId device;
+    private double leaveOdds = 0;
+    private SimTransport world; // where devices go when they leave, see SimTransport.leave
+    private boolean leaving = false; // the planned drop is for good
+
+    public ConnectionSim(Notice notice) {
+        this(notice, null);
+    }
+
+    public ConnectionSim(Notice notice, TimerWheel timer) {
+        this(notice, timer, Clock.SYSTEM);
+    }
+
+    public ConnectionSim(Notice notice, TimerWheel timer, Clock clock) {
+        this(notice, timer, clock, new SimRandom().split());
+    }
+
+    public ConnectionSim(Notice notice, TimerWheel timer, Clock clock, RandomGenerator rng) {
+        this.notice = notice;
+        this.timer = timer;
+        this.clock = clock;
+        this.rng = rng;
+    }
+
+    void leaving(double odds, SimTransport world) {
+        this.leaveOdds = odds;
+        this.world = world;
+    }
+
+    @Override
+    public void addDropListener(DropListener l) { listeners.add(l); }
+    @Override
+    public void removeDropListener(DropListener l) { listeners.remove(l); }
+
+    @Override
+    public boolean connect(DeviceId d) {
+        // simple 85% success rate + small delay
+        try {
+            clock.sleep(connectDelayMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // give up, and let the caller see why
+            return false;
+        }
+        return attempt(d);
+    }
+
+    // the same attempt without a blocked thread: the wheel finishes it, so
+    // thousands can be in flight on the wheel's thread(s). cancel() abandons
+    // it; the pending timer goes and the device is never connected behind
+    // the caller's back.
+    public CompletableFuture<Boolean> connectAsync(DeviceId d) {
+        return attemptAfter(d, connectDelayMs(), -1);
+    }
+
+    // connectAsync with a deadline: fails with a TimeoutException if the
+    // attempt isn't done within timeoutMs
+    @Override
+    public CompletableFuture<Boolean> connectAsync(DeviceId d, long timeoutMs) {
+        return attemptAfter(d, connectDelayMs(), timeoutMs);
+    }
+
+    // we know when the attempt ends, so one timer does: the attempt's, or
+    // the deadline's if that comes first
+    private CompletableFuture<Boolean> attemptAfter(DeviceId d, long delayMs, long timeoutMs) {
+        if (timer == null) throw new IllegalStateException("async connect needs a TimerWheel");
+        CompletableFuture<Boolean> f = new CompletableFuture<>();
+        TimerWheel.Timeout done;
+        if (timeoutMs >= 0 && timeoutMs < delayMs) {
+            done = timer.schedule(timeoutMs, () ->
+                f.completeExceptionally(new TimeoutException("connect to " + d + " took over " + timeoutMs + " ms")));
+        } else {
+            done = timer.schedule(delayMs, () -> {
+                if (f.isDone()) return;
+                boolean ok = attempt(d);
+                if (!f.complete(ok) && ok) close(); // lost the race with cancel
+            });
+        }
+        f.whenComplete((ok, e) -> done.cancel());
+        return f;
+    }
+
+    // how long a connect takes; callers that can't block wait this out themselves
+    @Override
+    public long connectDelayMs() { return 200 + rng.nextInt(300); }
+
+    // the non-blocking half of connect(): roll the dice, no sleep
+    @Override
+    public boolean attempt(DeviceId d) {
+        boolean ok = rng.nextDouble() < 0.85 && (world == null || !world.isGone(d));
+        if (ok) {
+            synchronized (this) {
+                connected = true;
+                device = d;
+                scheduleDrop(); // plan a random future drop
+                leaving = leaveOdds > 0 && rng.nextDouble() < leaveOdds;
+            }
+            notice.info("Connected to {}", d);
+        }
+        return ok;
+    }
+
+    // also undoes a connect nobody is waiting for
+    @Override
+    public synchronized void close() {
+        connected = false;
+        dropAt = -1L;
+        leaving = false;
+        if (pendingDrop != null) pendingDrop.cancel();
+        pendingDrop = null;
+    }
+
+    @Override
+    public boolean isDisconnected() {
+        if (fireDrop()) return true;
+        synchronized (this) { return !connected; }
+    }
+
+    // drop the link if it is due; the wheel never fires before dropAt
+    private boolean fireDrop() {
+        DeviceId d;
+        synchronized (this) {
+            if (!connected || dropAt <= 0 || clock.now() < dropAt) return false;
+            connected = false;
+            dropAt = -1L;
+            if (pendingDrop != null) pendingDrop.cancel(); // a no-op if it is what's running us
+            pendingDrop = null;
+            d = device;
+            if (leaving) world.left(d);
+        }
+        notice.warn("Link drop happened.");
+        for (DropListener l : listeners) l.onDrop(d);
+        return true;
+    }
+
+    private void scheduleDrop() {
+        long now = clock.now();
+        // will drop 5–12 seconds from now
+        long delay = 5_000 + rng.nextInt(8_000);
+        dropAt = now + delay;
+        if (timer != null) pendingDrop = timer.schedule(delay, this::fireDrop);
+    }
+}
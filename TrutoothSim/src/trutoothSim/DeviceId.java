@@ -1,14 +1,147 @@
-package trutoothSim;
-
-// tiny holder for name + address
-public class DeviceId {
-    public final String name;
-    public final String address;
-
-    public DeviceId(String name, String address) {
-        this.name = name;
-        this.address = address;
-    }
-
-    public String shortStr() { return name + " (" + address + ")"; }
-}
+package trutoothSim;
+
+import java.util.Objects;
+
+// tiny holder for name + address. The address is kept packed in a long
+// (48 bits for a MAC) and only turned back into "AA:BB:CC:DD:EE:FF" when
+// printed. of() interns: every sighting of the same device hands back the
+// same instance, so a big fleet holds one small object per device and
+// maps keyed by DeviceId or by key() never need a new one to look up.
+public class DeviceId {
+    static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    static final long ADDRESS_MASK = (1L << 48) - 1;
+    private static final long NO_ADDRESS = 1L << 48; // set in keys made from the name
+
+    public final String name;
+    private final long key;
+
+    public DeviceId(String name, String address) {
+        this(name, address == null ? nameKey(name) : parse(address));
+    }
+
+    public DeviceId(String name, long key) {
+        this.name = name;
+        this.key = key;
+    }
+
+    // the address as a number, for binary logs and maps; devices without
+    // an address get one from the name's 64-bit hash, with bit 48 set
+    public long key() { return key; }
+
+    public boolean hasAddress() { return (key & NO_ADDRESS) == 0; }
+
+    // "AA:BB:CC:DD:EE:FF", or null if we never had one
+    public String address() { return hasAddress() ? format(key) : null; }
+
+    public String shortStr() { return name + " (" + address() + ")"; }
+
+    @Override
+    public String toString() { return shortStr(); }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DeviceId)) return false;
+        DeviceId d = (DeviceId) o;
+        return key == d.key && Objects.equals(name, d.name);
+    }
+
+    @Override
+    public int hashCode() { return mix(key); }
+
+    // "AA:BB:CC:DD:EE:FF", "aa-bb-..." or "AABBCCDDEEFF" -> 0xAABBCCDDEEFF
+    public static long parse(String address) {
+        long k = 0;
+        int digits = 0;
+        for (int i = 0; i < address.length(); i++) {
+            char c = address.charAt(i);
+            if (c == ':' || c == '-') continue;
+            int v = Character.digit(c, 16);
+            if (v < 0 || ++digits > 12) throw new IllegalArgumentException("Bad address: " + address);
+            k = (k << 4) | v;
+        }
+        if (digits != 12) throw new IllegalArgumentException("Bad address: " + address);
+        return k;
+    }
+
+    public static String format(long address) {
+        char[] out = new char[17];
+        for (int i = 0; i < 6; i++) {
+            int b = (int) (address >>> (40 - 8 * i)) & 0xFF;
+            if (i > 0) out[3 * i - 1] = ':';
+            out[3 * i] = HEX[b >>> 4];
+            out[3 * i + 1] = HEX[b & 15];
+        }
+        return new String(out);
+    }
+
+    private static long nameKey(String name) {
+        return (name == null ? 0 : hash64(name)) | NO_ADDRESS;
+    }
+
+    // FNV-1a over the UTF-16 chars. String.hashCode's 32 bits collide
+    // within a few hundred thousand names, and two names on one key would
+    // be one device to of() and to every map keyed by key()
+    static long hash64(String s) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        return h;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // --- interning ---
+    // open addressing on key(). Lookups don't lock: all fields are final,
+    // so a racy read still sees a whole DeviceId, and a miss just retries
+    // under the lock. Entries are kept for the life of the process.
+
+    private static volatile DeviceId[] table = new DeviceId[1024];
+    private static int count = 0; // guarded by DeviceId.class
+
+    public static DeviceId of(String name, String address) {
+        return of(name, address == null ? nameKey(name) : parse(address));
+    }
+
+    public static DeviceId of(String name, long key) {
+        DeviceId d = lookup(key);
+        if (d != null && Objects.equals(d.name, name)) return d;
+        synchronized (DeviceId.class) {
+            DeviceId[] t = table;
+            int i = slot(t, key);
+            d = t[i];
+            if (d != null && Objects.equals(d.name, name)) return d;
+            DeviceId fresh = new DeviceId(name, key);
+            t[i] = fresh; // a renamed device replaces its old entry
+            if (d == null && ++count * 2 > t.length) table = grow(t);
+            return fresh;
+        }
+    }
+
+    // the interned device with this key, or null; never allocates
+    public static DeviceId lookup(long key) {
+        DeviceId[] t = table;
+        return t[slot(t, key)];
+    }
+
+    // where key lives, or the empty slot it would go in
+    private static int slot(DeviceId[] t, long key) {
+        int mask = t.length - 1;
+        int i = mix(key) & mask;
+        while (t[i] != null && t[i].key != key) i = (i + 1) & mask;
+        return i;
+    }
+
+    private static DeviceId[] grow(DeviceId[] old) {
+        DeviceId[] t = new DeviceId[old.length * 2];
+        for (DeviceId d : old) {
+            if (d != null) t[slot(t, d.key)] = d;
+        }
+        return t;
+    }
+}
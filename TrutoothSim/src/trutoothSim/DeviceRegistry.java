@@ -0,0 +1,191 @@
+package trutoothSim;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.LongFunction;
+
+// long -> V map for per-device state, keyed by DeviceId.key(). Open
+// addressing over a long[] and an Object[], so there is no boxing and no
+// entry object per device. Keys are split over stripes by hash; a write
+// locks only its stripe, a read locks nothing: the value is published
+// with a release store after its key, so a reader that sees the value
+// (acquire) also sees the key. Removing leaves a tombstone, which keeps
+// probe chains intact for readers and is reused or dropped on resize.
+public class DeviceRegistry<V> {
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final Object TOMBSTONE = new Object();
+
+    private final Stripe[] stripes;
+    private final int stripeShift;
+
+    private static final class Table {
+        final long[] keys;
+        final Object[] values; // null: never used, TOMBSTONE: removed
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+        }
+    }
+
+    private static final class Stripe {
+        volatile Table table;
+        volatile int size;
+        int used; // live + tombstones, guarded by this
+
+        Stripe(int capacity) { table = new Table(capacity); }
+    }
+
+    public DeviceRegistry() {
+        this(1024, 16);
+    }
+
+    // expected is the total size to presize for; stripes is rounded up to a power of two
+    public DeviceRegistry(int expected, int stripes) {
+        int n = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new Stripe[n];
+        this.stripeShift = 32 - Integer.numberOfTrailingZeros(n);
+        int per = capacityFor(Math.max(1, expected / n));
+        for (int i = 0; i < n; i++) this.stripes[i] = new Stripe(per);
+    }
+
+    public V get(long key) {
+        int h = hash(key);
+        Table t = stripe(h).table;
+        int mask = t.keys.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            Object v = SLOT.getAcquire(t.values, i);
+            if (v == null) return null;
+            if (t.keys[i] == key) return v == TOMBSTONE ? null : cast(v);
+        }
+    }
+
+    public V get(DeviceId d) { return get(d.key()); }
+
+    public V put(long key, V value) { return put(key, value, false); }
+
+    public V putIfAbsent(long key, V value) { return put(key, value, true); }
+
+    public V computeIfAbsent(long key, LongFunction<? extends V> make) {
+        V v = get(key);
+        if (v != null) return v;
+        Stripe s = stripe(hash(key));
+        synchronized (s) {
+            v = get(key);
+            if (v == null) put(key, v = make.apply(key), false);
+            return v;
+        }
+    }
+
+    public V remove(long key) {
+        int h = hash(key);
+        Stripe s = stripe(h);
+        synchronized (s) {
+            Table t = s.table;
+            int mask = t.keys.length - 1;
+            for (int i = h & mask; ; i = (i + 1) & mask) {
+                Object v = t.values[i];
+                if (v == null) return null;
+                if (t.keys[i] == key) {
+                    if (v == TOMBSTONE) return null;
+                    SLOT.setRelease(t.values, i, TOMBSTONE);
+                    s.size--;
+                    return cast(v);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        int n = 0;
+        for (Stripe s : stripes) n += s.size;
+        return n;
+    }
+
+    public interface Visitor<V> {
+        void visit(long key, V value);
+    }
+
+    // weakly consistent, like ConcurrentHashMap's iterators
+    public void forEach(Visitor<? super V> v) {
+        for (Stripe s : stripes) {
+            Table t = s.table;
+            for (int i = 0; i < t.values.length; i++) {
+                Object o = SLOT.getAcquire(t.values, i);
+                if (o != null && o != TOMBSTONE) v.visit(t.keys[i], cast(o));
+            }
+        }
+    }
+
+    private V put(long key, V value, boolean onlyIfAbsent) {
+        if (value == null) throw new NullPointerException("value");
+        int h = hash(key);
+        Stripe s = stripe(h);
+        synchronized (s) {
+            Table t = s.table;
+            int mask = t.keys.length - 1;
+            int reuse = -1;
+            int i = h & mask;
+            for (; ; i = (i + 1) & mask) {
+                Object v = t.values[i];
+                if (v == null) break;
+                if (t.keys[i] == key) {
+                    if (v == TOMBSTONE) {
+                        s.size++;
+                    } else if (onlyIfAbsent) {
+                        return cast(v);
+                    }
+                    SLOT.setRelease(t.values, i, value);
+                    return v == TOMBSTONE ? null : cast(v);
+                }
+                if (v == TOMBSTONE && reuse < 0) reuse = i;
+            }
+            if (reuse >= 0) {
+                // a reader that still sees the tombstone just skips the slot
+                t.keys[reuse] = key;
+                SLOT.setRelease(t.values, reuse, value);
+                s.size++;
+                return null;
+            }
+            t.keys[i] = key;
+            SLOT.setRelease(t.values, i, value);
+            s.size++;
+            if (++s.used * 2 > t.keys.length) {
+                s.table = rehash(t, s.size);
+                s.used = s.size;
+            }
+            return null;
+        }
+    }
+
+    // a fresh table without tombstones, sized for 4x the live entries
+    private static Table rehash(Table old, int live) {
+        Table t = new Table(capacityFor(live));
+        int mask = t.keys.length - 1;
+        for (int j = 0; j < old.values.length; j++) {
+            Object v = old.values[j];
+            if (v == null || v == TOMBSTONE) continue;
+            int i = hash(old.keys[j]) & mask;
+            while (t.values[i] != null) i = (i + 1) & mask;
+            t.keys[i] = old.keys[j];
+            t.values[i] = v;
+        }
+        return t; // published by the volatile store of Stripe.table
+    }
+
+    private Stripe stripe(int h) {
+        return stripes[stripeShift == 32 ? 0 : h >>> stripeShift];
+    }
+
+    private static int capacityFor(int n) {
+        return Math.max(16, Integer.highestOneBit(Math.max(1, n * 4 - 1)) << 1);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V cast(Object o) { return (V) o; }
+}
@@ -0,0 +1,7 @@
+package trutoothSim;
+
+// told the moment a ConnectionSim link drops; runs on whatever thread the
+// TimerWheel fires on, so hand anything slow off elsewhere
+public interface DropListener {
+    void onDrop(DeviceId d);
+}
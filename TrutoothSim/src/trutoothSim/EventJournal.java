@@ -0,0 +1,179 @@
+package trutoothSim;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// binary log of link events for offline crunching: fixed 32-byte records
+// (time, device key, latency, type) appended to memory-mapped segment files
+// events-000001.bin, events-000002.bin, ... Writers claim their record with
+// one atomic add and write it straight into the mapping, so there is no
+// lock, no formatting and no syscall per event; only rolling over to a new
+// segment takes a lock. An unused (zero) type marks the end of a segment.
+public class EventJournal implements AutoCloseable {
+    public enum Type { NONE, FOUND, CONNECT_OK, CONNECT_FAIL, DROP, RECONNECT }
+
+    public static final int RECORD = 32;
+    private static final int HEADER = 16;
+    private static final int MAGIC = 0x54544A31; // "TTJ1"
+    // what file() makes; nine digits at most, so the number always fits an int
+    private static final Pattern SEGMENT = Pattern.compile("events-(\\d{6,9})\\.bin");
+
+    private final Path dir;
+    private final long segmentBytes;
+    private volatile Segment current;
+
+    // record layout, little endian
+    private static final int TIME = 0, KEY = 8, LATENCY = 16, TYPE = 24;
+    // the type word is stored with release and read with acquire, so a
+    // reader that sees a type also sees the rest of that record
+    private static final VarHandle TYPE_WORD =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final class Segment {
+        final int number;
+        final FileChannel ch;
+        final MappedByteBuffer buf;
+        final AtomicLong pos = new AtomicLong(HEADER);
+
+        Segment(int number, FileChannel ch, MappedByteBuffer buf) {
+            this.number = number;
+            this.ch = ch;
+            this.buf = buf;
+        }
+    }
+
+    // segmentMb is rounded down to whole records
+    public EventJournal(Path dir, int segmentMb) throws IOException {
+        this.dir = dir;
+        long bytes = (long) segmentMb << 20;
+        this.segmentBytes = HEADER + (bytes - HEADER) / RECORD * RECORD;
+        Files.createDirectories(dir);
+        this.current = open(lastSegment(dir) + 1);
+    }
+
+    public void append(long timeMs, long deviceKey, Type type, long latencyMs) {
+        while (true) {
+            Segment s = current;
+            long at = s.pos.getAndAdd(RECORD);
+            if (at + RECORD <= segmentBytes) {
+                int i = (int) at;
+                s.buf.putLong(i + TIME, timeMs);
+                s.buf.putLong(i + KEY, deviceKey);
+                s.buf.putLong(i + LATENCY, latencyMs);
+                TYPE_WORD.setRelease(s.buf, i + TYPE, type.ordinal()); // last, see TYPE_WORD
+                return;
+            }
+            roll(s);
+        }
+    }
+
+    public void append(long timeMs, DeviceId d, Type type, long latencyMs) {
+        append(timeMs, d.key(), type, latencyMs);
+    }
+
+    // pushes mapped pages to disk; not needed for other readers on this machine
+    public synchronized void force() {
+        current.buf.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        current.buf.force();
+        current.ch.close();
+    }
+
+    private synchronized void roll(Segment full) {
+        if (current != full) return; // someone else already rolled
+        try {
+            Segment next = open(full.number + 1);
+            current = next;
+            // a writer that claimed one of the last slots may still be
+            // filling it; the mapping stays valid after close (until the
+            // buffer is collected), so its record still reaches the file
+            full.buf.force();
+            full.ch.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open journal segment " + (full.number + 1), e);
+        }
+    }
+
+    private Segment open(int number) throws IOException {
+        FileChannel ch = FileChannel.open(file(dir, number),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(0, MAGIC);
+        buf.putInt(4, RECORD);
+        buf.putInt(8, number);
+        return new Segment(number, ch, buf);
+    }
+
+    private static Path file(Path dir, int number) {
+        return dir.resolve(String.format("events-%06d.bin", number));
+    }
+
+    // anything else in the directory that happens to look similar (a
+    // backup, a copy, someone's notes) is not ours and is skipped
+    private static int lastSegment(Path dir) throws IOException {
+        int last = 0;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "events-*.bin")) {
+            for (Path p : ds) {
+                Matcher m = SEGMENT.matcher(p.getFileName().toString());
+                if (m.matches()) last = Math.max(last, Integer.parseInt(m.group(1)));
+            }
+        }
+        return last;
+    }
+
+    // offline side: every record in every segment, in order, no objects made
+    public interface Visitor {
+        void event(long timeMs, long deviceKey, Type type, long latencyMs);
+    }
+
+    public static void read(Path dir, Visitor v) throws IOException {
+        Type[] types = Type.values();
+        int last = lastSegment(dir);
+        for (int n = 1; n <= last; n++) {
+            Path p = file(dir, n);
+            if (!Files.exists(p)) continue;
+            try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+                MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                buf.order(ByteOrder.LITTLE_ENDIAN);
+                if (buf.limit() < HEADER || buf.getInt(0) != MAGIC) {
+                    throw new IOException(p + " is not a journal segment");
+                }
+                for (int i = HEADER; i + RECORD <= buf.limit(); i += RECORD) {
+                    int type = (int) TYPE_WORD.getAcquire(buf, i + TYPE);
+                    if (type == 0) break;
+                    v.event(buf.getLong(i + TIME), buf.getLong(i + KEY), types[type], buf.getLong(i + LATENCY));
+                }
+            }
+        }
+    }
+
+    // java trutoothSim.EventJournal DIR  ->  per-type counts and mean latency
+    public static void main(String[] args) throws IOException {
+        long[] count = new long[Type.values().length];
+        long[] latency = new long[count.length];
+        read(Path.of(args[0]), (t, key, type, ms) -> {
+            count[type.ordinal()]++;
+            latency[type.ordinal()] += ms;
+        });
+        for (Type t : Type.values()) {
+            int i = t.ordinal();
+            if (count[i] == 0) continue;
+            System.out.println(t + ": " + count[i] + " events, mean " + (latency[i] / count[i]) + " ms");
+        }
+    }
+}
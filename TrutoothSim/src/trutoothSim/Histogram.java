@@ -0,0 +1,81 @@
+package trutoothSim;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// log-bucketed latency histogram in the HDR style: every power of two is
+// split into 2^subBits equal buckets, so relative error stays under
+// 1/2^subBits at any scale. Memory is fixed at construction (values above
+// 2^maxBits - 1 are clamped) and record() never allocates or locks.
+public class Histogram {
+    private final int subBits;
+    private final long maxValue;
+    private final AtomicLongArray counts;
+    private final AtomicLong max = new AtomicLong();
+
+    public Histogram(int subBits, int maxBits) {
+        this.subBits = subBits;
+        this.maxValue = (1L << maxBits) - 1;
+        this.counts = new AtomicLongArray((maxBits - subBits + 1) << subBits);
+    }
+
+    public void record(long v) {
+        if (v < 0) v = 0;
+        if (v > maxValue) v = maxValue;
+        counts.incrementAndGet(index(v));
+        long m = max.get();
+        while (v > m && !max.compareAndSet(m, v)) m = max.get();
+    }
+
+    public long count() {
+        long n = 0;
+        for (int i = 0; i < counts.length(); i++) n += counts.get(i);
+        return n;
+    }
+
+    public long max() { return max.get(); }
+
+    // smallest bucket bound that at least q percent of values fall under
+    public long percentile(double q) {
+        long n = count();
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(q / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upper(i), max());
+        }
+        return max();
+    }
+
+    // fold another histogram of the same shape into this one
+    public void add(Histogram o) {
+        for (int i = 0; i < counts.length(); i++) {
+            long c = o.counts.get(i);
+            if (c != 0) counts.addAndGet(i, c);
+        }
+        long m = max.get(), om = o.max();
+        while (om > m && !max.compareAndSet(m, om)) m = max.get();
+    }
+
+    @Override
+    public String toString() {
+        return "p50 " + percentile(50) + " / p99 " + percentile(99)
+             + " / p99.9 " + percentile(99.9) + " / max " + max() + " ms (n=" + count() + ")";
+    }
+
+    private int index(long v) {
+        long sub = 1L << subBits;
+        if (v < sub) return (int) v;
+        int shift = 63 - Long.numberOfLeadingZeros(v) - subBits;
+        return (int) (((shift + 1) << subBits) + ((v >>> shift) & (sub - 1)));
+    }
+
+    private long upper(int i) {
+        int sub = 1 << subBits;
+        if (i < sub) return i;
+        int shift = (i >> subBits) - 1;
+        long low = i & (sub - 1);
+        return ((sub + low) << shift) + (1L << shift) - 1;
+    }
+}
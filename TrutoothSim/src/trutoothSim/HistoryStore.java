@@ -0,0 +1,412 @@
+package trutoothSim;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+// what the Java side remembers between runs: every finished session and
+// link event, folded into per-device totals. New records go to an
+// append-only log (history.log); once that grows past compactBytes the
+// totals are written out as history.snap and the log starts over. On open
+// we load the snapshot and replay the log, dropping a torn last record.
+// Both carry a generation number, so a log the snapshot already covers
+// (crash right after compacting) is never counted twice.
+// Callers only enqueue: one writer thread takes whatever has piled up,
+// writes it in one go and fsyncs once for the whole batch (group commit),
+// so the monitor loop never waits on the disk.
+public class HistoryStore implements AutoCloseable {
+    private static final int SNAP_MAGIC = 0x54544853; // "TTHS"
+    private static final int LOG_MAGIC = 0x5454484C;  // "TTHL"
+    private static final int LOG_HEADER = 8;          // magic, generation
+    private static final byte SESSION = 1, EVENT = 2;
+    private static final int BATCH = 16 * 1024;
+    private static final int MAX_TEXT = 248; // a Bluetooth friendly name's limit
+    private static final byte[] EMPTY = {};
+
+    private final Path log;
+    private final Path snap;
+    private final long compactBytes;
+    private final Notice notice;
+    private final FileChannel ch;
+    private final BlockingQueue<Rec> queue = new ArrayBlockingQueue<>(64 * 1024);
+    private final Map<Long, DeviceHistory> devices = new HashMap<>(); // guarded by itself
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicInteger putting = new AtomicInteger(); // puts past the closed check
+    private long durable = 0; // guarded by this
+    private long logBytes;
+    private int generation = 1; // of the log the snapshot expects next
+    private volatile boolean closed = false;
+    private volatile boolean failed = false; // the writer hit an I/O error and quit
+    private final AtomicLong dropped = new AtomicLong(); // records lost to that
+    private final Thread writer;
+
+    // everything we know about one device
+    public static final class DeviceHistory {
+        public final long key;
+        public String name;
+        public String address;
+        public long sessions;
+        public long monitoredMs;
+        public long drops;
+        public long reconnectAttempts;
+        public long successfulReconnects;
+        public long lastEventMs = -1;
+        public final long[] events = new long[EventJournal.Type.values().length];
+
+        DeviceHistory(long key) { this.key = key; }
+
+        DeviceHistory copy() {
+            DeviceHistory h = new DeviceHistory(key);
+            h.name = name;
+            h.address = address;
+            h.sessions = sessions;
+            h.monitoredMs = monitoredMs;
+            h.drops = drops;
+            h.reconnectAttempts = reconnectAttempts;
+            h.successfulReconnects = successfulReconnects;
+            h.lastEventMs = lastEventMs;
+            System.arraycopy(events, 0, h.events, 0, events.length);
+            return h;
+        }
+
+        @Override
+        public String toString() {
+            return name + " (" + address + "): " + sessions + " sessions, "
+                 + (monitoredMs / 1000) + " s, " + drops + " drops, "
+                 + successfulReconnects + "/" + reconnectAttempts + " reconnects";
+        }
+    }
+
+    // one queued record; SESSION or EVENT
+    private static final class Rec {
+        final byte kind;
+        final long key, a, b, c, d, e;
+        final int type;
+        final String name, address;
+
+        Rec(byte kind, long key, long a, long b, long c, long d, long e, int type,
+            String name, String address) {
+            this.kind = kind;
+            this.key = key;
+            this.a = a; this.b = b; this.c = c; this.d = d; this.e = e;
+            this.type = type;
+            this.name = name;
+            this.address = address;
+        }
+    }
+
+    public HistoryStore(Path dir, Notice notice) throws IOException {
+        this(dir, 16 << 20, notice);
+    }
+
+    public HistoryStore(Path dir, long compactBytes, Notice notice) throws IOException {
+        Files.createDirectories(dir);
+        this.log = dir.resolve("history.log");
+        this.snap = dir.resolve("history.snap");
+        this.compactBytes = compactBytes;
+        this.notice = notice;
+        loadSnapshot();
+        this.ch = FileChannel.open(log, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.logBytes = replay();
+        this.writer = new Thread(this::drain, "history");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // a finished (or stopped) session; false if the store is closed or
+    // failed and won't keep it
+    public boolean session(SessionData s) {
+        SessionData.Snapshot n = s.snapshot();
+        DeviceId d = s.device;
+        return put(new Rec(SESSION, d.key(), s.startMs, n.elapsedMs, n.drops, n.reconnectAttempts,
+                           n.successfulReconnects, 0, clip(d.name), clip(d.address())));
+    }
+
+    public boolean event(long timeMs, DeviceId d, EventJournal.Type type, long latencyMs) {
+        return put(new Rec(EVENT, d.key(), timeMs, latencyMs, 0, 0, 0, type.ordinal(), null, null));
+    }
+
+    // records that never made it to disk because the store failed
+    public long dropped() { return dropped.get(); }
+
+    // waits until everything recorded so far is on disk
+    public synchronized void flush() throws InterruptedException {
+        long target = enqueued.get();
+        while (durable < target && writer.isAlive()) wait(100);
+    }
+
+    public Map<Long, DeviceHistory> devices() {
+        Map<Long, DeviceHistory> m = new HashMap<>();
+        synchronized (devices) {
+            for (DeviceHistory h : devices.values()) m.put(h.key, h.copy());
+        }
+        return m;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            writer.join(); // drains what's left, compacts, then exits
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ch.close();
+    }
+
+    // counted in putting before the closed check, so once the writer has
+    // seen closed and no puts in flight, every later put sees closed too
+    // and nothing lands in the queue after its last batch
+    private boolean put(Rec r) {
+        putting.incrementAndGet();
+        try {
+            if (closed) {
+                if (failed) dropped.incrementAndGet();
+                return false;
+            }
+            enqueued.incrementAndGet();
+            // only waits if the disk really can't keep up; gives up if the
+            // writer dies meanwhile, since then nobody will ever make room
+            boolean queued;
+            while (!(queued = queue.offer(r, 100, TimeUnit.MILLISECONDS)) && !failed) { }
+            // the writer may also have failed and emptied the queue just before
+            if (queued && (!failed || !queue.remove(r))) return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            putting.decrementAndGet();
+        }
+        enqueued.decrementAndGet();
+        if (failed) dropped.incrementAndGet();
+        return false;
+    }
+
+    private void drain() {
+        List<Rec> batch = new ArrayList<>(BATCH);
+        ByteBuffer buf = ByteBuffer.allocate(1 << 20);
+        CRC32 crc = new CRC32();
+        try {
+            while (true) {
+                Rec first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closed && putting.get() == 0 && queue.isEmpty()) break;
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH - 1);
+                buf.clear();
+                for (Rec r : batch) buf = encode(buf, r, crc);
+                buf.flip();
+                while (buf.hasRemaining()) logBytes += ch.write(buf);
+                ch.force(false); // the one fsync for the whole batch
+                synchronized (devices) {
+                    for (Rec r : batch) apply(r);
+                }
+                synchronized (this) {
+                    durable += batch.size();
+                    notifyAll();
+                }
+                batch.clear();
+                if (logBytes > compactBytes) compact();
+            }
+            compact();
+        } catch (IOException e) {
+            notice.error("History store failed, no more history this run: {}", e);
+            failed = true;
+            closed = true;
+            // free anyone waiting for room; what's queued is lost
+            dropped.addAndGet(batch.size());
+            while (queue.poll() != null) dropped.incrementAndGet();
+        } catch (InterruptedException e) {
+            // daemon thread, process is going away
+        }
+    }
+
+    // frame: payload length, CRC32 of the payload, payload. An event is
+    // kind, key, time, latency, type (29 bytes); a session adds the counts
+    // and the device's name and address.
+    private static ByteBuffer encode(ByteBuffer buf, Rec r, CRC32 crc) {
+        byte[] name = r.name == null ? EMPTY : r.name.getBytes(StandardCharsets.UTF_8);
+        byte[] addr = r.address == null ? EMPTY : r.address.getBytes(StandardCharsets.UTF_8);
+        int len = 1 + 8 * 3 + 4;
+        if (r.kind == SESSION) len += 8 * 3 + 2 + name.length + 2 + addr.length;
+        if (buf.remaining() < len + 8) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(buf.capacity() * 2, len + 8));
+            buf.flip();
+            bigger.put(buf);
+            buf = bigger;
+        }
+        int start = buf.position();
+        buf.putInt(len).putInt(0);
+        buf.put(r.kind).putLong(r.key).putLong(r.a).putLong(r.b).putInt(r.type);
+        if (r.kind == SESSION) {
+            buf.putLong(r.c).putLong(r.d).putLong(r.e);
+            buf.putShort((short) name.length).put(name);
+            buf.putShort((short) addr.length).put(addr);
+        }
+        crc.reset();
+        crc.update(buf.array(), start + 8, len);
+        buf.putInt(start + 4, (int) crc.getValue());
+        return buf;
+    }
+
+    private static Rec decode(ByteBuffer p) {
+        byte kind = p.get();
+        long key = p.getLong(), a = p.getLong(), b = p.getLong();
+        int type = p.getInt();
+        if (kind != SESSION) return new Rec(kind, key, a, b, 0, 0, 0, type, null, null);
+        long c = p.getLong(), d = p.getLong(), e = p.getLong();
+        byte[] name = new byte[p.getShort() & 0xFFFF];
+        p.get(name);
+        byte[] addr = new byte[p.getShort() & 0xFFFF];
+        p.get(addr);
+        return new Rec(kind, key, a, b, c, d, e, type,
+                       name.length == 0 ? null : new String(name, StandardCharsets.UTF_8),
+                       addr.length == 0 ? null : new String(addr, StandardCharsets.UTF_8));
+    }
+
+    // names are written with a 16-bit length here and with writeUTF in the
+    // snapshot; MAX_TEXT chars stay well inside both (at most 3 bytes each)
+    private static String clip(String s) {
+        if (s == null || s.length() <= MAX_TEXT) return s;
+        int end = Character.isHighSurrogate(s.charAt(MAX_TEXT - 1)) ? MAX_TEXT - 1 : MAX_TEXT;
+        return s.substring(0, end);
+    }
+
+    private void apply(Rec r) {
+        DeviceHistory h = devices.computeIfAbsent(r.key, DeviceHistory::new);
+        if (r.kind == SESSION) {
+            h.name = r.name;
+            h.address = r.address;
+            h.sessions++;
+            h.monitoredMs += r.b;
+            h.drops += r.c;
+            h.reconnectAttempts += r.d;
+            h.successfulReconnects += r.e;
+            h.lastEventMs = Math.max(h.lastEventMs, r.a + r.b);
+        } else {
+            h.events[r.type]++;
+            h.lastEventMs = Math.max(h.lastEventMs, r.a);
+        }
+    }
+
+    // replays the log into the totals; returns the length of its good part
+    private long replay() throws IOException {
+        long size = ch.size();
+        ByteBuffer all = ByteBuffer.allocate((int) Math.min(size, Integer.MAX_VALUE));
+        while (all.hasRemaining() && ch.read(all, all.position()) > 0) { }
+        all.flip();
+        if (size < LOG_HEADER || all.getInt(0) != LOG_MAGIC || all.getInt(4) != generation) {
+            if (size > 0) notice.warn("History log is from an older snapshot, starting a new one");
+            return restartLog();
+        }
+        CRC32 crc = new CRC32();
+        int good = LOG_HEADER;
+        all.position(good);
+        while (all.remaining() >= 8) {
+            int len = all.getInt(good), sum = all.getInt(good + 4);
+            if (len <= 0 || good + 8 + len > all.limit()) break;
+            crc.reset();
+            crc.update(all.array(), good + 8, len);
+            if ((int) crc.getValue() != sum) break;
+            apply(decode(all.duplicate().position(good + 8).limit(good + 8 + len)));
+            good += 8 + len;
+            all.position(good);
+        }
+        if (good < size) {
+            notice.warn("History log: dropped {} bytes of a torn record", size - good);
+            ch.truncate(good);
+        }
+        ch.position(good);
+        return good;
+    }
+
+    private long restartLog() throws IOException {
+        ch.truncate(0);
+        ByteBuffer h = ByteBuffer.allocate(LOG_HEADER).putInt(LOG_MAGIC).putInt(generation);
+        h.flip();
+        ch.write(h, 0);
+        ch.position(LOG_HEADER);
+        ch.force(true);
+        return LOG_HEADER;
+    }
+
+    private void loadSnapshot() throws IOException {
+        if (!Files.exists(snap)) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snap)))) {
+            if (in.readInt() != SNAP_MAGIC) throw new IOException(snap + " is not a history snapshot");
+            generation = in.readInt();
+            int n = in.readInt(), types = in.readInt();
+            for (int i = 0; i < n; i++) {
+                DeviceHistory h = new DeviceHistory(in.readLong());
+                h.name = in.readBoolean() ? in.readUTF() : null;
+                h.address = in.readBoolean() ? in.readUTF() : null;
+                h.sessions = in.readLong();
+                h.monitoredMs = in.readLong();
+                h.drops = in.readLong();
+                h.reconnectAttempts = in.readLong();
+                h.successfulReconnects = in.readLong();
+                h.lastEventMs = in.readLong();
+                for (int t = 0; t < types; t++) {
+                    long c = in.readLong();
+                    if (t < h.events.length) h.events[t] = c;
+                }
+                devices.put(h.key, h);
+            }
+        }
+    }
+
+    // totals -> history.snap (written aside, then renamed over), then a
+    // fresh log of the next generation; the rename is the commit point
+    private void compact() throws IOException {
+        Path tmp = snap.resolveSibling("history.snap.tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            synchronized (devices) {
+                out.writeInt(SNAP_MAGIC);
+                out.writeInt(generation + 1);
+                out.writeInt(devices.size());
+                out.writeInt(EventJournal.Type.values().length);
+                for (DeviceHistory h : devices.values()) {
+                    out.writeLong(h.key);
+                    out.writeBoolean(h.name != null);
+                    if (h.name != null) out.writeUTF(h.name);
+                    out.writeBoolean(h.address != null);
+                    if (h.address != null) out.writeUTF(h.address);
+                    out.writeLong(h.sessions);
+                    out.writeLong(h.monitoredMs);
+                    out.writeLong(h.drops);
+                    out.writeLong(h.reconnectAttempts);
+                    out.writeLong(h.successfulReconnects);
+                    out.writeLong(h.lastEventMs);
+                    for (long c : h.events) out.writeLong(c);
+                }
+            }
+        }
+        try (FileChannel f = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            f.force(true);
+        }
+        Files.move(tmp, snap, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        generation++;
+        logBytes = restartLog();
+    }
+}
@@ -0,0 +1,27 @@
+package trutoothSim;
+
+// the three waits we care about, in ms: how long a scan took to see the
+// device, how long each connect attempt took, and how long a link was dark
+// from drop to reconnect. Sessions keep a coarse set (~12% buckets, up to
+// ~4.6 h) so a big fleet stays small; the fleet-wide set is finer (~3%).
+public class Latencies {
+    public final Histogram scan;
+    public final Histogram connect;
+    public final Histogram outage;
+
+    private Latencies(int subBits, int maxBits) {
+        scan = new Histogram(subBits, maxBits);
+        connect = new Histogram(subBits, maxBits);
+        outage = new Histogram(subBits, maxBits);
+    }
+
+    public static Latencies session() { return new Latencies(3, 24); }
+    public static Latencies fleet()   { return new Latencies(5, 32); }
+
+    @Override
+    public String toString() {
+        return "Scan:    " + scan + "\n"
+             + "Connect: " + connect + "\n"
+             + "Outage:  " + outage + "\n";
+    }
+}
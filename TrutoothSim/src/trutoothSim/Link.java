@@ -0,0 +1,298 @@
+package trutoothSim;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+// one monitored device: the same find -> connect -> watch -> reconnect
+// steps as Main, either as a little state machine stepped by the shared
+// TimerWheel (start) or as a plain blocking loop on its own thread (run).
+// The state machine only uses findAsync and connectAsync, so a transport
+// whose scans and connects block (JSR-82) never holds a pool thread.
+public class Link implements Runnable {
+    public enum State { SCANNING, QUEUED, CONNECTING, CONNECTED, BACKOFF, TRIPPED, STOPPED }
+
+    private static final int SCAN_MS = 3000;
+    private static final long RESCAN_MS = 5000;
+    private static final long CONNECT_TIMEOUT_MS = 10_000; // a slow RFCOMM open is a failed one
+
+    private final String wantedName;
+    private final String wantedAddr;
+    private final Notice notice;
+    private final Scanner scanner;
+    private final Connection conn;
+    private Reconnect backoff = new Reconnect(); // Monitor may swap it before start
+    private final TimerWheel wheel;
+    private final Clock clock;
+    private final Latencies fleet;
+    private final EventJournal journal; // may be null
+    private final HistoryStore history; // may be null
+    private DeviceRegistry<Link> registry; // the fleet's index, set before start
+    private ConnectGate gate; // fleet-wide connect admission, may be null
+    private Breaker breaker; // stops connecting to a device that's gone, may be null
+    private final Semaphore dropSignal = new Semaphore(0); // wakes run() on a drop
+
+    // steps of one link never overlap, so only these need to be seen by stop()
+    private volatile State state = State.SCANNING;
+    private volatile boolean stopped = false;
+    private volatile boolean threaded = false; // set once run() owns us
+    private DeviceId device;
+    private SessionData session;
+    private boolean everConnected = false;
+    private long scanStart = -1, attemptStart = -1, droppedAt = -1; // for the histograms
+    private volatile CompletableFuture<DeviceId> scanning; // the scan in flight, for stop()
+    private volatile CompletableFuture<Boolean> attempting; // the connect in flight, for stop()
+
+    public Link(String wantedName, String wantedAddr, Notice notice,
+                Scanner scanner, Connection conn, TimerWheel wheel, Latencies fleet) {
+        this(wantedName, wantedAddr, notice, scanner, conn, wheel, fleet, null, null);
+    }
+
+    public Link(String wantedName, String wantedAddr, Notice notice, Scanner scanner,
+                Connection conn, TimerWheel wheel, Latencies fleet,
+                EventJournal journal, HistoryStore history) {
+        this.wantedName = wantedName;
+        this.wantedAddr = wantedAddr;
+        this.notice = notice;
+        this.scanner = scanner;
+        this.conn = conn;
+        this.wheel = wheel;
+        this.clock = wheel.clock();
+        this.fleet = fleet;
+        this.journal = journal;
+        this.history = history;
+        conn.addDropListener(d -> {
+            if (threaded) dropSignal.release();
+            else later(0, this::onDrop);
+        });
+    }
+
+    public State state() { return stopped ? State.STOPPED : state; }
+    public DeviceId device() { return device; }
+    public SessionData session() { return session; }
+    public Breaker breaker() { return breaker; }
+
+    void index(DeviceRegistry<Link> registry) { this.registry = registry; }
+    void backoff(Reconnect backoff) { this.backoff = backoff; }
+    void gate(ConnectGate gate) { this.gate = gate; }
+    void breaker(Breaker breaker) { this.breaker = breaker; }
+
+    public void start() { scan(); }
+
+    public void stop() {
+        stopped = true;
+        // don't wait out a scan or connect in flight; if a connect already
+        // finished, its step sees stopped and hands the gate slot back itself
+        CompletableFuture<DeviceId> s = scanning;
+        if (s != null) s.cancel(false);
+        CompletableFuture<Boolean> f = attempting;
+        if (f != null && f.cancel(false) && gate != null) gate.abandoned();
+        conn.close();
+        if (session == null) return;
+        session.end();
+        if (history != null) history.session(session);
+    }
+
+    // 1) find the device
+    private void scan() {
+        state = State.SCANNING;
+        if (scanStart < 0) scanStart = clock.now();
+        find(d -> {
+            if (!found(d)) {
+                later(RESCAN_MS, this::scan);
+                return;
+            }
+            connect();
+        });
+    }
+
+    // 2) connect (also used for reconnects), once the gate lets us
+    private void connect() {
+        if (gate == null) {
+            attempt();
+            return;
+        }
+        state = State.QUEUED;
+        gate.admit(() -> {
+            if (stopped) gate.abandoned();
+            else attempt();
+        });
+    }
+
+    private void attempt() {
+        state = State.CONNECTING;
+        attemptStart = clock.now();
+        CompletableFuture<Boolean> f = conn.connectAsync(device, CONNECT_TIMEOUT_MS);
+        attempting = f;
+        if (stopped && f.cancel(false) && gate != null) gate.abandoned(); // stop() came first
+        f.whenComplete((done, e) -> {
+            attempting = null;
+            boolean ok = done != null && done; // a timeout is just a failed try
+            if (stopped) {
+                // stop() has handed the slot back if it cancelled us
+                if (!f.isCancelled() && gate != null) gate.abandoned();
+                return;
+            }
+            if (gate != null) gate.finished(ok);
+            connectTook(ok);
+            if (ok) {
+                connected(); // nothing to do now until the drop event
+            } else {
+                backoff.onFailure();
+                if (tripped()) {
+                    later(breaker.openMs(), this::probe);
+                    return;
+                }
+                retry();
+                later(backoff.nextDelayMs(), this::connect);
+            }
+        });
+    }
+
+    // breaker open: wait it out, then only listen for the device
+    private void probe() {
+        find(d -> {
+            if (breaker.sighted(d != null)) connect();
+            else later(breaker.openMs(), this::probe);
+        });
+    }
+
+    // 3) the link dropped (the timer told us)
+    private void onDrop() {
+        dropped();
+        retry();
+        later(backoff.nextDelayMs(), this::connect);
+    }
+
+    // the same lifecycle for one-thread-per-device modes; every wait is a sleep
+    @Override
+    public void run() {
+        threaded = true;
+        try {
+            state = State.SCANNING;
+            scanStart = clock.now();
+            while (!stopped) {
+                Thread.sleep(scanner.scanWindowMs(SCAN_MS));
+                if (found(scanner.sight(wantedName, wantedAddr))) break;
+                Thread.sleep(RESCAN_MS);
+            }
+            while (!stopped) {
+                if (gate != null) {
+                    state = State.QUEUED;
+                    gate.acquire();
+                }
+                state = State.CONNECTING;
+                dropSignal.drainPermits();
+                attemptStart = clock.now();
+                boolean ok = conn.connect(device); // false, interrupt kept, if stop() interrupts it
+                if (gate != null) {
+                    if (stopped) gate.abandoned();
+                    else gate.finished(ok);
+                }
+                if (stopped) break;
+                connectTook(ok);
+                if (ok) {
+                    connected();
+                    dropSignal.acquire();
+                    if (stopped) break;
+                    dropped();
+                } else {
+                    backoff.onFailure();
+                    if (tripped()) {
+                        do {
+                            Thread.sleep(breaker.openMs());
+                            Thread.sleep(scanner.scanWindowMs(SCAN_MS));
+                        } while (!stopped && !breaker.sighted(scanner.sight(wantedName, wantedAddr) != null));
+                        continue;
+                    }
+                }
+                retry();
+                Thread.sleep(backoff.nextDelayMs());
+            }
+        } catch (InterruptedException e) {
+            // stop() interrupts us; nothing left to clean up
+        }
+    }
+
+    private boolean found(DeviceId d) {
+        if (d == null) return false;
+        device = d;
+        if (registry != null) registry.put(d.key(), this);
+        session = new SessionData(d, clock, fleet);
+        session.start();
+        long took = clock.now() - scanStart;
+        session.scanTook(took);
+        record(EventJournal.Type.FOUND, took);
+        return true;
+    }
+
+    private void connectTook(boolean ok) {
+        long took = clock.now() - attemptStart;
+        session.connectTook(took);
+        record(ok ? EventJournal.Type.CONNECT_OK : EventJournal.Type.CONNECT_FAIL, took);
+    }
+
+    private void connected() {
+        backoff.onSuccess();
+        if (breaker != null) breaker.succeeded();
+        if (droppedAt >= 0) {
+            long outage = clock.now() - droppedAt;
+            session.outageLasted(outage);
+            backoff.outageLasted(outage);
+            record(EventJournal.Type.RECONNECT, outage);
+            droppedAt = -1;
+        }
+        if (everConnected) {
+            session.reconnected();
+            notice.info("Reconnected to {}", device);
+        }
+        everConnected = true;
+        state = State.CONNECTED;
+    }
+
+    private void dropped() {
+        droppedAt = clock.now();
+        backoff.onDrop();
+        session.drop();
+        record(EventJournal.Type.DROP, 0);
+        notice.info("Disconnected from {}", device);
+    }
+
+    // counts a failed connect against the breaker; true if it just opened
+    private boolean tripped() {
+        if (breaker == null || !breaker.failed()) return false;
+        state = State.TRIPPED;
+        notice.warn("{} isn't answering, no connects for {} ms", device, breaker.openMs());
+        return true;
+    }
+
+    private void retry() {
+        session.reconnectAttempt();
+        state = State.BACKOFF;
+    }
+
+    private void record(EventJournal.Type type, long latencyMs) {
+        if (journal != null) journal.append(clock.now(), device, type, latencyMs);
+        if (history != null) history.event(clock.now(), device, type, latencyMs);
+    }
+
+    // one scan window, then next (unless stopped) with what it saw; a scan
+    // that failed saw nothing, so the rescan or breaker takes it from there
+    private void find(Consumer<DeviceId> next) {
+        if (stopped) return;
+        CompletableFuture<DeviceId> f = scanner.findAsync(wantedName, wantedAddr, SCAN_MS, wheel);
+        scanning = f;
+        if (stopped) f.cancel(false); // stop() came first
+        f.whenComplete((d, e) -> {
+            scanning = null;
+            if (stopped) return;
+            if (e != null) notice.warn("Scan for {} failed: {}", wantedName != null ? wantedName : wantedAddr, e);
+            next.accept(e == null ? d : null);
+        });
+    }
+
+    private void later(long delayMs, Runnable step) {
+        if (stopped) return;
+        wheel.schedule(delayMs, () -> { if (!stopped) step.run(); });
+    }
+}
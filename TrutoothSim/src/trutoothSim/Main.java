@@ -1,74 +1,324 @@
-package trutoothSim;
-
-public class Main {
-    public static void main(String[] args) throws Exception {
-        System.out.println("trutoothSim starting...");
-
-        // what we are "looking" for
-        String targetName = "MySpeaker";
-        String targetAddr = null; // or set like "AA:BB:CC:DD:EE:FF"
-
-        Notice notice = new Notice();
-        ScannerSim scanner = new ScannerSim(notice);
-        ConnectionSim conn = new ConnectionSim(notice);
-        Reconnect backoff = new Reconnect();
-        SessionData session = null;
-
-        // 1) Find the device (simulated)
-        DeviceId found;
-        while (true) {
-            found = scanner.find(targetName, targetAddr, 3000);
-            if (found != null) {
-                System.out.println("Device found: " + found.name + " (" + found.address + ")");
-                break;
-            } else {
-                System.out.println("Device not found. Retrying in 5 seconds...");
-                Thread.sleep(5000);
-            }
-        }
-
-        // 2) Start session + connect
-        session = new SessionData(found);
-        session.start();
-
-        if (!conn.connect(found)) {
-            System.out.println("Initial connect failed. Ending.");
-            session.end();
-            System.out.println(session.summary());
-            return;
-        }
-
-        System.out.println("Connected. Watching for drops...");
-
-        // 3) Simple monitor loop (~45 seconds demo)
-        long stopTime = System.currentTimeMillis() + 45_000;
-        while (System.currentTimeMillis() < stopTime) {
-            Thread.sleep(500);
-
-            if (conn.isDisconnected()) {
-                session.drops++;
-                notice.info("Disconnected from " + found.shortStr());
-
-                backoff.onFailure();
-                session.reconnectAttempts++;
-
-                long wait = backoff.nextDelayMs();
-                System.out.println("Retrying in " + wait + " ms...");
-                Thread.sleep(wait);
-
-                if (conn.connect(found)) {
-                    backoff.onSuccess();
-                    session.successfulReconnects++;
-                    notice.info("Reconnected to " + found.shortStr());
-                } else {
-                    System.out.println("Reconnect failed.");
-                }
-            }
-        }
-
-        session.end();
-        System.out.println();
-        System.out.println(session.summary());
-        System.out.println("SpeakerSim done.");
-    }
-}
+package trutoothSim;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class Main {
+    public static void main(String[] args) throws Exception {
+        System.out.println("trutoothSim starting...");
+
+        // --fleet N watches N devices at once instead of the single demo below;
+        // --mode scheduler|virtual|platform picks how each device is driven,
+        // --transport sim|jsr82 which radio it runs on; --sim-hours H instead
+        // replays H hours in virtual time, as fast as the CPU allows;
+        // --journal DIR also writes every link event to a binary journal there,
+        // --history DIR adds this run's sessions to the device history there.
+        // --soak N runs N devices' state off-heap for --sim-minutes M (or
+        // --sim-hours) of virtual time, e.g. 10M devices with -Xmx64m
+        // -XX:MaxDirectMemorySize=256m (the state is ~21 bytes a device of
+        // direct memory, whose limit otherwise follows -Xmx).
+        // --seed S replays a simulated run exactly (the seed is printed),
+        // --backoff POLICY picks the retry schedule (see Reconnect.parse) and
+        // --storm N compares the policies on N devices dropping at once;
+        // --gate RATE:MAX puts every connect through a ConnectGate,
+        // --breaker FAILS:OPEN_MS gives each device a circuit Breaker and
+        // --leave P makes each simulated drop the device leaving for good with odds P.
+        // --async N scans for and connects to N devices at once on one thread
+        int fleet = intArg(args, "--fleet", 0);
+        int simHours = intArg(args, "--sim-hours", 0);
+        int soak = intArg(args, "--soak", 0);
+        String seed = strArg(args, "--seed", null);
+        SimRandom random = seed != null ? new SimRandom(Long.parseLong(seed)) : new SimRandom();
+        int storm = intArg(args, "--storm", 0);
+        int async = intArg(args, "--async", 0);
+        String policy = strArg(args, "--backoff", "stepped");
+        double leave = Double.parseDouble(strArg(args, "--leave", "0"));
+        if (storm > 0) {
+            runStorm(storm, strArg(args, "--backoff", null), strArg(args, "--gate", null), random);
+            return;
+        }
+        if (async > 0) {
+            runAsync(async, random);
+            return;
+        }
+        if (soak > 0) {
+            runSoak(soak, intArg(args, "--sim-minutes", Math.max(1, simHours) * 60), random);
+            return;
+        }
+        if (fleet > 0 && simHours > 0) {
+            SimTransport transport = new SimTransport(random);
+            transport.leave(leave);
+            runSimulated(fleet, simHours, transport, Reconnect.parse(policy), strArg(args, "--gate", null),
+                         strArg(args, "--breaker", null),
+                         strArg(args, "--journal", null), strArg(args, "--history", null));
+            return;
+        }
+        if (fleet > 0) {
+            Monitor.Mode mode = Monitor.Mode.valueOf(strArg(args, "--mode", "scheduler").toUpperCase());
+            String name = strArg(args, "--transport", "sim");
+            Transport transport;
+            if (name.equals("sim")) {
+                SimTransport sim = new SimTransport(random);
+                sim.leave(leave);
+                transport = sim;
+            } else {
+                transport = Transport.load(name);
+            }
+            runFleet(fleet, mode, transport, Reconnect.parse(policy), strArg(args, "--gate", null),
+                     strArg(args, "--breaker", null),
+                     intArg(args, "--threads", 2), intArg(args, "--seconds", 45),
+                     strArg(args, "--journal", null), strArg(args, "--history", null));
+            return;
+        }
+
+        // what we are "looking" for
+        String targetName = "MySpeaker";
+        String targetAddr = null; // or set like "AA:BB:CC:DD:EE:FF"
+
+        Notice notice = new Notice();
+        ScannerSim scanner = new ScannerSim(notice);
+        TimerWheel timer = new TimerWheel(10, null, notice);
+        ConnectionSim conn = new ConnectionSim(notice, timer);
+        Semaphore dropSignal = new Semaphore(0);
+        conn.addDropListener(d -> dropSignal.release());
+        Reconnect backoff = new Reconnect();
+        SessionData session = null;
+
+        // 1) Find the device (simulated)
+        DeviceId found;
+        long scanStart = System.currentTimeMillis();
+        while (true) {
+            found = scanner.find(targetName, targetAddr, 3000);
+            if (found != null) {
+                System.out.println("Device found: " + found.name + " (" + found.address() + ")");
+                break;
+            } else {
+                System.out.println("Device not found. Retrying in 5 seconds...");
+                Thread.sleep(5000);
+            }
+        }
+
+        // 2) Start session + connect
+        session = new SessionData(found);
+        session.start();
+        session.scanTook(System.currentTimeMillis() - scanStart);
+
+        long t0 = System.currentTimeMillis();
+        boolean ok = conn.connect(found);
+        session.connectTook(System.currentTimeMillis() - t0);
+        if (!ok) {
+            System.out.println("Initial connect failed. Ending.");
+            session.end();
+            notice.close();
+            System.out.println(session.summary());
+            return;
+        }
+
+        System.out.println("Connected. Watching for drops...");
+
+        // 3) Simple monitor loop (~45 seconds demo)
+        long stopTime = System.currentTimeMillis() + 45_000;
+        long left;
+        long droppedAt = -1;
+        while ((left = stopTime - System.currentTimeMillis()) > 0) {
+            // sleep until the drop event fires rather than polling
+            if (conn.isDisconnected() || dropSignal.tryAcquire(left, TimeUnit.MILLISECONDS)) {
+                session.drop();
+                notice.info("Disconnected from {}", found);
+                if (droppedAt < 0) {
+                    droppedAt = System.currentTimeMillis();
+                    backoff.onDrop();
+                }
+                session.reconnectAttempt();
+
+                long wait = backoff.nextDelayMs();
+                System.out.println("Retrying in " + wait + " ms...");
+                Thread.sleep(wait);
+
+                dropSignal.drainPermits();
+                t0 = System.currentTimeMillis();
+                ok = conn.connect(found);
+                session.connectTook(System.currentTimeMillis() - t0);
+                if (ok) {
+                    long outage = System.currentTimeMillis() - droppedAt;
+                    session.outageLasted(outage);
+                    backoff.outageLasted(outage);
+                    droppedAt = -1;
+                    backoff.onSuccess();
+                    session.reconnected();
+                    notice.info("Reconnected to {}", found);
+                } else {
+                    backoff.onFailure();
+                    System.out.println("Reconnect failed.");
+                }
+            }
+        }
+
+        timer.stop();
+        session.end();
+        notice.close();
+        System.out.println();
+        System.out.println(session.summary());
+        System.out.println("SpeakerSim done.");
+    }
+
+    static void runFleet(int devices, Monitor.Mode mode, Transport transport,
+                         Reconnect.Policy backoff, String gate, String breaker, int threads, int seconds,
+                         String journalDir, String historyDir) throws Exception {
+        Notice notice = new Notice();
+        Monitor monitor = new Monitor(notice, threads, mode, transport);
+        monitor.backoff(backoff);
+        if (gate != null) monitor.gate(ConnectGate.parse(gate, monitor.wheel()));
+        if (breaker != null) monitor.breaker(breaker);
+        EventJournal journal = openJournal(monitor, journalDir);
+        HistoryStore history = openHistory(monitor, historyDir, notice);
+        for (int i = 0; i < devices; i++) {
+            monitor.add("Speaker-" + i, null);
+        }
+        monitor.start();
+        System.out.println("Watching " + devices + " devices (" + monitor.mode() + ")...");
+
+        long stopTime = System.currentTimeMillis() + seconds * 1000L;
+        while (System.currentTimeMillis() < stopTime) {
+            Thread.sleep(5000);
+            System.out.println(monitor.status());
+        }
+
+        long stopStart = System.currentTimeMillis();
+        monitor.stop();
+        long stopMs = System.currentTimeMillis() - stopStart;
+        if (journal != null) journal.close();
+        if (history != null) closeHistory(history);
+        notice.close();
+        System.out.println();
+        System.out.println(monitor.summary());
+        System.out.println("Stopped " + devices + " links in " + stopMs + " ms.");
+        System.out.println("SpeakerSim done.");
+    }
+
+    static void runSimulated(int devices, int hours, SimTransport transport,
+                             Reconnect.Policy backoff, String gate, String breaker,
+                             String journalDir, String historyDir) throws Exception {
+        // a day of a big fleet is millions of log lines; keep only errors
+        Notice notice = new Notice(Notice.Level.ERROR);
+        SimClock sim = new SimClock(10, notice);
+        Monitor monitor = new Monitor(notice, sim, transport);
+        monitor.backoff(backoff);
+        if (gate != null) monitor.gate(ConnectGate.parse(gate, monitor.wheel()));
+        if (breaker != null) monitor.breaker(breaker);
+        EventJournal journal = openJournal(monitor, journalDir);
+        HistoryStore history = openHistory(monitor, historyDir, notice);
+        for (int i = 0; i < devices; i++) {
+            monitor.add("Speaker-" + i, null);
+        }
+        monitor.start();
+        System.out.println("Simulating " + devices + " devices for " + hours + " h (seed "
+                           + transport.random().seed() + ")...");
+
+        long wallStart = System.currentTimeMillis();
+        for (int h = 1; h <= hours; h++) {
+            sim.advance(3_600_000L);
+            System.out.println("Hour " + h + ": " + monitor.status());
+        }
+        long wallMs = System.currentTimeMillis() - wallStart;
+
+        monitor.stop();
+        if (journal != null) journal.close();
+        if (history != null) closeHistory(history);
+        notice.close();
+        System.out.println();
+        System.out.println(monitor.summary());
+        if (transport.gone() > 0) System.out.println("Left for good: " + transport.gone() + " devices");
+        System.out.println("Simulated " + hours + " h in " + wallMs + " ms.");
+    }
+
+    // every policy (or just the one asked for) against the same herd,
+    // with and without the gate when one is given
+    static void runStorm(int devices, String only, String gate, SimRandom random) {
+        String[] policies = only != null ? new String[] { only }
+                          : new String[] { "stepped", "capped", "exponential", "decorrelated", "adaptive" };
+        System.out.println(devices + " devices drop at once (seed " + random.seed() + "):");
+        for (String p : policies) {
+            System.out.println(Storm.run(devices, Reconnect.parse(p), null, new SimRandom(random.seed())));
+            if (gate != null) {
+                System.out.println(Storm.run(devices, Reconnect.parse(p), gate, new SimRandom(random.seed())));
+            }
+        }
+    }
+
+    // scan-then-connect for every device as one future each; the wheel's
+    // ticker is the only thread doing the work
+    static void runAsync(int devices, SimRandom random) {
+        int threadsBefore = Thread.activeCount();
+        Notice notice = new Notice(Notice.Level.ERROR);
+        TimerWheel wheel = new TimerWheel(10, null, notice);
+        ScannerSim scanner = new ScannerSim(notice, Clock.SYSTEM, random);
+        System.out.println("Scanning for and connecting to " + devices + " devices (seed "
+                           + random.seed() + ")...");
+        long wallStart = System.currentTimeMillis();
+        List<CompletableFuture<DeviceId>> all = new ArrayList<>();
+        for (int i = 0; i < devices; i++) {
+            ConnectionSim conn = new ConnectionSim(notice, wheel, Clock.SYSTEM, random.split());
+            all.add(ScanConnect.run(scanner, conn, wheel, "Speaker-" + i, null, 3));
+        }
+        CompletableFuture.allOf(all.toArray(new CompletableFuture<?>[0])).join();
+        long connected = all.stream().filter(f -> f.join() != null).count();
+        System.out.println("Connected " + connected + " of " + devices + " in "
+                           + (System.currentTimeMillis() - wallStart) + " ms on "
+                           + (Thread.activeCount() - threadsBefore) + " extra thread(s).");
+        wheel.stop();
+    }
+
+    static void runSoak(int devices, int minutes, SimRandom random) {
+        long wallStart = System.currentTimeMillis();
+        Soak soak = new Soak(devices, random);
+        System.out.println("Soaking " + devices + " devices for " + minutes + " min (virtual, seed "
+                           + random.seed() + ")...");
+        for (int m = 1; m <= minutes; m++) {
+            soak.advance(60_000L);
+            System.out.println(soak.status());
+        }
+        long wallMs = System.currentTimeMillis() - wallStart;
+        System.out.println("Soaked " + soak.events() + " link events in " + wallMs + " ms.");
+    }
+
+    static EventJournal openJournal(Monitor monitor, String dir) throws IOException {
+        if (dir == null) return null;
+        EventJournal journal = new EventJournal(Path.of(dir), 64);
+        monitor.journal(journal);
+        System.out.println("Journal: " + dir + " (read with trutoothSim.EventJournal " + dir + ")");
+        return journal;
+    }
+
+    static HistoryStore openHistory(Monitor monitor, String dir, Notice notice) throws IOException {
+        if (dir == null) return null;
+        HistoryStore history = new HistoryStore(Path.of(dir), notice);
+        monitor.history(history);
+        return history;
+    }
+
+    static void closeHistory(HistoryStore history) throws IOException {
+        history.close();
+        long sessions = 0;
+        for (HistoryStore.DeviceHistory h : history.devices().values()) sessions += h.sessions;
+        System.out.println("History: " + history.devices().size() + " devices, "
+                           + sessions + " sessions on record");
+    }
+
+    // tiny "--name value" lookup, no need for a parser library
+    static String strArg(String[] args, String name, String def) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals(name)) return args[i + 1];
+        }
+        return def;
+    }
+
+    static int intArg(String[] args, String name, int def) {
+        return Integer.parseInt(strArg(args, name, String.valueOf(def)));
+    }
+}
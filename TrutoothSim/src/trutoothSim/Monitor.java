@@ -0,0 +1,189 @@
+package trutoothSim;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// watches a whole fleet in one process: every device is a Link, and all
+// links share one TimerWheel and a small pool instead of each owning a
+// sleeping thread.
+// VIRTUAL and PLATFORM instead give each link its own blocking thread,
+// so the three can be compared on the same fleet.
+public class Monitor {
+    public enum Mode { SCHEDULER, VIRTUAL, PLATFORM }
+
+    private final Notice notice;
+    private final Mode mode;
+    private final Transport transport;
+    private final Scanner scanner;
+    private final ExecutorService pool; // runs link steps, SCHEDULER only
+    private final TimerWheel wheel;
+    private final List<Link> links = new ArrayList<>();
+    private final DeviceRegistry<Link> byDevice = new DeviceRegistry<>(); // once found
+    private final List<Thread> threads = new ArrayList<>();
+    private final Latencies latency = Latencies.fleet();
+    private EventJournal journal; // optional binary log of every link event
+    private HistoryStore history; // optional, kept across runs
+    private final SimRandom random; // for jittered backoff
+    private Reconnect.Policy backoff = Reconnect.STEPPED;
+    private ConnectGate gate; // optional cap on connects in flight
+    private String breaker; // "FAILS:OPEN_MS" for each link's Breaker, null: none
+
+    public Monitor(Notice notice, int threads) {
+        this(notice, threads, Mode.SCHEDULER);
+    }
+
+    public Monitor(Notice notice, int threads, Mode mode) {
+        this(notice, threads, mode, new SimTransport());
+    }
+
+    // discrete-event run: no threads at all, the SimClock's wheel runs every
+    // step inline as the caller advances virtual time
+    public Monitor(Notice notice, SimClock sim) {
+        this(notice, sim, new SimRandom());
+    }
+
+    // same, with every random choice drawn from one seed
+    public Monitor(Notice notice, SimClock sim, SimRandom random) {
+        this(notice, sim, new SimTransport(random));
+    }
+
+    public Monitor(Notice notice, SimClock sim, SimTransport transport) {
+        this.notice = notice;
+        this.mode = Mode.SCHEDULER;
+        this.transport = transport;
+        this.random = transport.random();
+        this.pool = null;
+        this.wheel = sim.wheel();
+        this.scanner = transport.scanner(notice, wheel);
+    }
+
+    public Monitor(Notice notice, int threads, Mode mode, Transport transport) {
+        if (mode == Mode.VIRTUAL && !Threads.hasVirtual()) {
+            notice.warn("Virtual threads need Java 21+, using platform threads.");
+            mode = Mode.PLATFORM;
+        }
+        this.notice = notice;
+        this.mode = mode;
+        this.transport = transport;
+        this.random = transport instanceof SimTransport ? ((SimTransport) transport).random()
+                                                        : new SimRandom();
+        this.pool = mode != Mode.SCHEDULER ? null
+                  : Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "monitor");
+            t.setDaemon(true);
+            return t;
+        });
+        // in the thread modes the wheel only fires drops, which just wake a thread
+        this.wheel = new TimerWheel(10, pool, notice);
+        this.scanner = transport.scanner(notice, wheel);
+    }
+
+    public Mode mode() { return mode; }
+
+    // set before add(); links keep the journal they were created with
+    public void journal(EventJournal journal) { this.journal = journal; }
+    public void history(HistoryStore history) { this.history = history; }
+    public void backoff(Reconnect.Policy policy) { this.backoff = policy; }
+    public void gate(ConnectGate gate) { this.gate = gate; }
+
+    public void breaker(String spec) {
+        Breaker.parse(spec); // fail now, not at the first add()
+        this.breaker = spec;
+    }
+
+    // for things that share the links' timers, such as a ConnectGate
+    public TimerWheel wheel() { return wheel; }
+
+    // add before start(); the list isn't guarded
+    public Link add(String wantedName, String wantedAddr) {
+        Link l = new Link(wantedName, wantedAddr, notice, scanner,
+                          transport.connection(notice, wheel), wheel, latency,
+                          journal, history);
+        l.index(byDevice);
+        l.backoff(new Reconnect(backoff, random.split()));
+        l.gate(gate);
+        if (breaker != null) l.breaker(Breaker.parse(breaker));
+        links.add(l);
+        return l;
+    }
+
+    // the link watching this device, or null until some link has found it
+    public Link link(long key) { return byDevice.get(key); }
+    public Link link(DeviceId d) { return byDevice.get(d); }
+
+    public int size() { return links.size(); }
+    public Latencies latency() { return latency; }
+
+    public void start() {
+        if (mode == Mode.SCHEDULER) {
+            for (Link l : links) l.start();
+            return;
+        }
+        boolean virtual = mode == Mode.VIRTUAL;
+        for (int i = 0; i < links.size(); i++) {
+            threads.add(Threads.start(virtual, "link-" + i, links.get(i)));
+        }
+    }
+
+    public void stop() throws InterruptedException {
+        for (Link l : links) l.stop();
+        wheel.stop();
+        if (pool != null) {
+            pool.shutdownNow();
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        for (Thread t : threads) t.interrupt();
+        for (Thread t : threads) t.join(1000);
+    }
+
+    public Map<Link.State, Integer> states() {
+        Map<Link.State, Integer> m = new EnumMap<>(Link.State.class);
+        for (Link.State s : Link.State.values()) m.put(s, 0);
+        for (Link l : links) m.merge(l.state(), 1, Integer::sum);
+        return m;
+    }
+
+    // one line for the console: where the fleet is, and what it costs per device
+    public String status() {
+        Runtime rt = Runtime.getRuntime();
+        long heap = rt.totalMemory() - rt.freeMemory();
+        long cpuMs = ProcessHandle.current().info().totalCpuDuration()
+                .map(d -> d.toMillis()).orElse(-1L);
+        int n = Math.max(1, links.size());
+        return "Fleet " + links.size() + " " + transport.name() + "/" + mode + " " + states()
+             + " | timers " + wheel.size()
+             + (gate != null ? " | " + gate : "")
+             + " | heap/device " + (heap / n) + " B"
+             + " | cpu/device " + (cpuMs * 1000 / n) + " us";
+    }
+
+    public String summary() {
+        long drops = 0, attempts = 0, reconnects = 0, trips = 0, probes = 0;
+        int sessions = 0;
+        for (Link l : links) {
+            if (l.breaker() != null) {
+                trips += l.breaker().trips();
+                probes += l.breaker().probes();
+            }
+            SessionData session = l.session();
+            if (session == null) continue;
+            SessionData.Snapshot s = session.snapshot();
+            sessions++;
+            drops += s.drops;
+            attempts += s.reconnectAttempts;
+            reconnects += s.successfulReconnects;
+        }
+        return "=== Fleet Summary ===\n"
+             + "Devices: " + links.size() + " (" + sessions + " found)\n"
+             + "Drops: " + drops + "\n"
+             + "Reconnect attempts: " + attempts + "\n"
+             + "Successful reconnects: " + reconnects + "\n"
+             + (breaker != null ? "Breaker trips: " + trips + " (" + probes + " probe scans)\n" : "")
+             + latency;
+    }
+}
@@ -1,7 +1,212 @@
-package trutoothSim;
-
-public class Notice {
-    public void info(String m)  { System.out.println("[INFO]  " + m); }
-    public void warn(String m)  { System.out.println("[WARN]  " + m); }
-    public void error(String m) { System.out.println("[ERROR] " + m); }
-}
+package trutoothSim;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// console log that never makes the caller wait on System.out. Callers drop
+// a level, a "{}" template and up to two args into a preallocated ring; one
+// background thread formats and prints them in batches. A message below the
+// level costs one compare: no string is ever built for it. When the ring is
+// full we either drop (and say so later) or make the caller wait for room.
+// The writer sleeps until a message comes; at OFF there is no writer at all.
+// close() prints what's left and ends the writer.
+public class Notice implements AutoCloseable {
+    public enum Level { INFO, WARN, ERROR, OFF }
+
+    private static final String[] TAGS = { "[INFO]  ", "[WARN]  ", "[ERROR] " };
+    private static final Object[] NONE = {};
+
+    private final Level level;
+    private final boolean dropWhenFull;
+    private final PrintStream out;
+    private final int mask;
+
+    // the ring: slot i is free for the producer at sequence s when
+    // seq[i] == s, and holds a message for the consumer when seq[i] == s + 1
+    private final AtomicLongArray seq;
+    private final Level[] levels;
+    private final String[] templates;
+    private final Object[] args1;
+    private final Object[] args2;
+    private final AtomicLong tail = new AtomicLong(); // next to claim
+    private volatile long head = 0;                   // next to print
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer; // null at OFF
+    private final Thread hook;
+    private volatile boolean sleeping = false; // the writer is parked, or about to be
+    private volatile boolean closed = false;
+
+    public Notice() {
+        this(Level.INFO);
+    }
+
+    public Notice(Level level) {
+        this(level, 8192, false, System.out);
+    }
+
+    // capacity is rounded up to a power of two
+    public Notice(Level level, int capacity, boolean dropWhenFull, PrintStream out) {
+        int cap = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.level = level;
+        this.dropWhenFull = dropWhenFull;
+        this.out = out;
+        this.mask = cap - 1;
+        this.seq = new AtomicLongArray(cap);
+        for (int i = 0; i < cap; i++) seq.set(i, i);
+        this.levels = new Level[cap];
+        this.templates = new String[cap];
+        this.args1 = new Object[cap];
+        this.args2 = new Object[cap];
+        if (level == Level.OFF) {
+            this.writer = null;
+            this.hook = null;
+            return;
+        }
+        this.writer = new Thread(this::drain, "notice");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        // daemon threads still run during shutdown hooks, so nothing is lost
+        this.hook = new Thread(this::flush, "notice-flush");
+        Runtime.getRuntime().addShutdownHook(hook);
+    }
+
+    public void info(String m)  { log(Level.INFO, m, NONE, null); }
+    public void warn(String m)  { log(Level.WARN, m, NONE, null); }
+    public void error(String m) { log(Level.ERROR, m, NONE, null); }
+
+    public void info(String fmt, Object a)            { log(Level.INFO, fmt, a, null); }
+    public void info(String fmt, Object a, Object b)  { log(Level.INFO, fmt, a, b); }
+    public void warn(String fmt, Object a)            { log(Level.WARN, fmt, a, null); }
+    public void warn(String fmt, Object a, Object b)  { log(Level.WARN, fmt, a, b); }
+    public void error(String fmt, Object a)           { log(Level.ERROR, fmt, a, null); }
+    public void error(String fmt, Object a, Object b) { log(Level.ERROR, fmt, a, b); }
+
+    public boolean enabled(Level l) { return l.compareTo(level) >= 0; }
+
+    public long dropped() { return dropped.get(); }
+
+    // wait until everything logged so far is printed
+    public void flush() {
+        if (writer == null) return;
+        long target = tail.get();
+        while (head < target && writer.isAlive()) {
+            wake();
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    // print what's left and stop the writer; later messages are ignored
+    @Override
+    public void close() {
+        if (writer == null || closed) return;
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(hook);
+        } catch (IllegalStateException e) {
+            // already shutting down; the hook finds nothing to do
+        }
+    }
+
+    private void log(Level l, String fmt, Object a, Object b) {
+        if (!enabled(l) || closed) return;
+        long pos;
+        while (true) {
+            pos = tail.get();
+            long s = seq.get((int) pos & mask);
+            if (s == pos) {
+                if (tail.compareAndSet(pos, pos + 1)) break;
+            } else if (s < pos) {
+                // full: the writer hasn't freed this slot yet
+                if (dropWhenFull) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                wake();
+                LockSupport.parkNanos(50_000);
+            }
+        }
+        int i = (int) pos & mask;
+        levels[i] = l;
+        templates[i] = fmt;
+        args1[i] = a;
+        args2[i] = b;
+        seq.set(i, pos + 1); // publish
+        wake();
+    }
+
+    // the writer sets sleeping before its last look at the ring and we
+    // publish before reading it, so one of us always sees the other
+    private void wake() {
+        if (sleeping) {
+            sleeping = false;
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void drain() {
+        StringBuilder sb = new StringBuilder(256);
+        long reportedDrops = 0;
+        while (true) {
+            long pos = head;
+            int n = 0;
+            while (n < 512) {
+                int i = (int) pos & mask;
+                if (seq.get(i) != pos + 1) break;
+                sb.append(TAGS[levels[i].ordinal()]);
+                try {
+                    format(sb, templates[i], args1[i], args2[i]);
+                } catch (RuntimeException e) { // a bad toString() mustn't kill the writer
+                    sb.append(templates[i]).append(" (").append(e).append(')');
+                }
+                sb.append(System.lineSeparator());
+                templates[i] = null;
+                args1[i] = args2[i] = null;
+                seq.set(i, pos + mask + 1); // free for the next lap
+                pos++;
+                n++;
+            }
+            long d = dropped.get();
+            if (d != reportedDrops) {
+                sb.append(TAGS[Level.WARN.ordinal()]).append(d - reportedDrops)
+                  .append(" log lines dropped (queue full)").append(System.lineSeparator());
+                reportedDrops = d;
+            }
+            if (sb.length() > 0) {
+                out.print(sb); // one lock per batch, not per line
+                out.flush();
+                sb.setLength(0);
+            }
+            head = pos;
+            if (n > 0) continue;
+            if (closed) return; // and nothing left
+            sleeping = true;
+            if (seq.get((int) pos & mask) != pos + 1 && !closed) LockSupport.park(this);
+            sleeping = false;
+        }
+    }
+
+    // "{}" takes the next arg; a plain message (NONE) is copied as is
+    private static void format(StringBuilder sb, String fmt, Object a, Object b) {
+        if (a == NONE) {
+            sb.append(fmt);
+            return;
+        }
+        int from = 0, used = 0;
+        while (used < 2) {
+            int at = fmt.indexOf("{}", from);
+            if (at < 0) break;
+            sb.append(fmt, from, at).append(used == 0 ? a : b);
+            from = at + 2;
+            used++;
+        }
+        sb.append(fmt, from, fmt.length());
+    }
+}
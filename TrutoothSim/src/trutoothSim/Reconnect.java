@@ -1,15 +1,187 @@
-package trutoothSim;
-
-public class Reconnect {
-    // 1s, 3s, 5s, then stick at 10s
-    private int fails = 0;
-
-    public long nextDelayMs() {
-        int[] steps = {1000, 3000, 5000};
-        if (fails < steps.length) return steps[fails];
-        return 10_000L;
-    }
-
-    public void onFailure() { fails++; }
-    public void onSuccess() { fails = 0; }
-}
+package trutoothSim;
+
+import java.util.random.RandomGenerator;
+
+public class Reconnect {
+    // how long to wait before the next try; r knows how many tries failed
+    // in a row, what we waited last time (0 after a success) and what this
+    // device has been like lately
+    public interface Policy {
+        long delayMs(Reconnect r, RandomGenerator rng);
+    }
+
+    // 1s, 3s, 5s, then stick at 10s; the same for every device, so a fleet
+    // that drops together also retries together
+    public static final Policy STEPPED = new Policy() {
+        @Override
+        public long delayMs(Reconnect r, RandomGenerator rng) { return Reconnect.delayMs(r.fails); }
+
+        @Override
+        public String toString() { return "stepped"; }
+    };
+
+    private static final int[] STEPS = {1000, 3000, 5000};
+    private static final double ALPHA = 0.2; // EWMA weight: roughly the last 5 events
+
+    private final Policy policy;
+    private final RandomGenerator rng; // only the jittered policies use it
+    private int fails = 0;
+    private long lastMs = 0;
+    // what we've learned about this device
+    private double successRate = 0.85; // of connect attempts; ConnectionSim's odds to start with
+    private double outageMs = -1;      // typical drop -> reconnected, -1 until we've seen one
+
+    public Reconnect() {
+        this(STEPPED, null);
+    }
+
+    public Reconnect(Policy policy, RandomGenerator rng) {
+        this.policy = policy;
+        this.rng = rng;
+    }
+
+    public long nextDelayMs() {
+        lastMs = policy.delayMs(this, rng);
+        return lastMs;
+    }
+
+    // a connect attempt failed
+    public void onFailure() {
+        fails++;
+        successRate += ALPHA * (0 - successRate);
+    }
+
+    // a connect attempt worked
+    public void onSuccess() {
+        fails = 0;
+        lastMs = 0;
+        successRate += ALPHA * (1 - successRate);
+    }
+
+    // the link dropped: an outage starts, counted like a failure for the
+    // schedule but not held against the device's connect record
+    public void onDrop() { fails++; }
+
+    // how long the outage that just ended lasted
+    public void outageLasted(long ms) {
+        outageMs = outageMs < 0 ? ms : outageMs + ALPHA * (ms - outageMs);
+    }
+
+    public int fails() { return fails; }
+    public long lastMs() { return lastMs; }
+    public double successRate() { return successRate; }
+    public double outageMs() { return outageMs; }
+    public Policy policy() { return policy; }
+
+    // the stepped schedule for callers that keep the fail count themselves
+    public static long delayMs(int fails) {
+        if (fails < STEPS.length) return STEPS[fails];
+        return 10_000L;
+    }
+
+    // base * 2^(fails-1), never above cap, no jitter
+    public static Policy capped(long baseMs, long capMs) {
+        return new Exponential(baseMs, capMs, false);
+    }
+
+    // "full jitter": uniform in [0, capped exponential]; spreads a herd the most
+    public static Policy exponential(long baseMs, long capMs) {
+        return new Exponential(baseMs, capMs, true);
+    }
+
+    // "decorrelated jitter": uniform in [base, 3 x last wait], capped; grows
+    // like the exponential on average but each device wanders off on its own
+    public static Policy decorrelated(long baseMs, long capMs) {
+        return new Decorrelated(baseMs, capMs);
+    }
+
+    // learns from the device itself, see Adaptive
+    public static Policy adaptive(long baseMs, long capMs) {
+        return new Adaptive(baseMs, capMs);
+    }
+
+    // "stepped", "capped:BASE:CAP", "exponential:BASE:CAP",
+    // "decorrelated:BASE:CAP" or "adaptive:BASE:CAP", in ms; BASE and CAP
+    // default to 1000 and 30000 (200 and 60000 for adaptive)
+    public static Policy parse(String spec) {
+        String[] p = spec.split(":");
+        boolean adaptive = p[0].equalsIgnoreCase("adaptive");
+        long base = p.length > 1 ? Long.parseLong(p[1]) : adaptive ? 200 : 1000;
+        long cap = p.length > 2 ? Long.parseLong(p[2]) : adaptive ? 60_000 : 30_000;
+        switch (p[0].toLowerCase()) {
+            case "stepped":      return STEPPED;
+            case "capped":       return capped(base, cap);
+            case "exponential":  return exponential(base, cap);
+            case "decorrelated": return decorrelated(base, cap);
+            case "adaptive":     return adaptive(base, cap);
+            default: throw new IllegalArgumentException("Unknown backoff policy: " + spec);
+        }
+    }
+
+    private static final class Exponential implements Policy {
+        private final long baseMs, capMs;
+        private final boolean jitter;
+
+        Exponential(long baseMs, long capMs, boolean jitter) {
+            this.baseMs = baseMs;
+            this.capMs = capMs;
+            this.jitter = jitter;
+        }
+
+        @Override
+        public long delayMs(Reconnect r, RandomGenerator rng) {
+            int shift = Math.min(Math.max(r.fails - 1, 0), 30);
+            long ceiling = Math.min(capMs, baseMs << shift);
+            return jitter ? rng.nextLong(ceiling + 1) : ceiling;
+        }
+
+        @Override
+        public String toString() { return (jitter ? "exponential:" : "capped:") + baseMs + ":" + capMs; }
+    }
+
+    private static final class Decorrelated implements Policy {
+        private final long baseMs, capMs;
+
+        Decorrelated(long baseMs, long capMs) {
+            this.baseMs = baseMs;
+            this.capMs = capMs;
+        }
+
+        @Override
+        public long delayMs(Reconnect r, RandomGenerator rng) {
+            long hi = Math.max(baseMs, r.lastMs) * 3; // the first wait is in [base, 3 x base]
+            return Math.min(capMs, baseMs + rng.nextLong(hi - baseMs + 1));
+        }
+
+        @Override
+        public String toString() { return "decorrelated:" + baseMs + ":" + capMs; }
+    }
+
+    // exponential from a small base, stretched by how badly this device
+    // connects: at 85%+ success the first retry comes after ~BASE ms, at
+    // 10% each wait is 8x longer, so a device that keeps failing soon sits
+    // near CAP instead of holding connect slots. A device whose outages
+    // usually last long (out of range, powered off) isn't retried much
+    // sooner than a quarter of its typical outage. Full jitter on top, so
+    // devices that drop together still spread out.
+    private static final class Adaptive implements Policy {
+        private final long baseMs, capMs;
+
+        Adaptive(long baseMs, long capMs) {
+            this.baseMs = baseMs;
+            this.capMs = capMs;
+        }
+
+        @Override
+        public long delayMs(Reconnect r, RandomGenerator rng) {
+            int shift = Math.min(Math.max(r.fails - 1, 0), 30);
+            double stretch = 0.85 / Math.max(0.1, Math.min(0.85, r.successRate));
+            double d = Math.max(baseMs * stretch * (1L << shift), r.outageMs * 0.25);
+            long ceiling = (long) Math.min(capMs, d);
+            return rng.nextLong(ceiling + 1);
+        }
+
+        @Override
+        public String toString() { return "adaptive:" + baseMs + ":" + capMs; }
+    }
+}
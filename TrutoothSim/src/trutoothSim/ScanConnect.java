@@ -0,0 +1,82 @@
+package trutoothSim;
+
+import java.util.concurrent.CompletableFuture;
+
+// scan-then-connect for one device as a single future, built from
+// Scanner.findAsync and Connection.connectAsync(d, timeout), so it drives
+// any Transport. On the sim every wait is a TimerWheel timeout, so
+// thousands of these run on the wheel's thread(s) with no thread per
+// device. Cancelling the returned future cancels whichever step is in
+// flight and nothing further is started.
+public class ScanConnect {
+    private static final int SCAN_MS = 3000;
+    private static final long RESCAN_MS = 5000;
+    private static final long CONNECT_TIMEOUT_MS = 1000;
+
+    private final Scanner scanner;
+    private final Connection conn;
+    private final TimerWheel wheel;
+    private final String wantedName, wantedAddr;
+    private final CompletableFuture<DeviceId> result = new CompletableFuture<>();
+    private final int tries;
+    private volatile CompletableFuture<?> step; // the one in flight
+    private int scans = 0, fails = 0; // steps never overlap
+
+    private ScanConnect(Scanner scanner, Connection conn, TimerWheel wheel,
+                        String wantedName, String wantedAddr, int tries) {
+        this.scanner = scanner;
+        this.conn = conn;
+        this.wheel = wheel;
+        this.wantedName = wantedName;
+        this.wantedAddr = wantedAddr;
+        this.tries = tries;
+    }
+
+    // up to tries scan windows (RESCAN_MS apart) to see the device, then up
+    // to tries connects on the stepped backoff; completes with the
+    // connected device, or null if it was never seen or never connected
+    public static CompletableFuture<DeviceId> run(Scanner scanner, Connection conn, TimerWheel wheel,
+                                                  String wantedName, String wantedAddr, int tries) {
+        ScanConnect s = new ScanConnect(scanner, conn, wheel, wantedName, wantedAddr, tries);
+        s.result.whenComplete((d, e) -> {
+            CompletableFuture<?> f = s.step;
+            if (f != null) f.cancel(false);
+        });
+        s.scan();
+        return s.result;
+    }
+
+    private void scan() {
+        CompletableFuture<DeviceId> f = scanner.findAsync(wantedName, wantedAddr, SCAN_MS, wheel);
+        follow(f);
+        f.handle((d, e) -> e == null ? d : null) // a failed scan saw nothing
+         .thenAccept(d -> {
+            if (result.isDone()) return;
+            if (d != null) connect(d);
+            else if (++scans < tries) later(RESCAN_MS, this::scan);
+            else result.complete(null);
+        });
+    }
+
+    private void connect(DeviceId d) {
+        CompletableFuture<Boolean> f = conn.connectAsync(d, CONNECT_TIMEOUT_MS);
+        follow(f);
+        f.handle((ok, e) -> ok != null && ok) // a timeout is just a failed try
+         .thenAccept(ok -> {
+            if (result.isDone()) return;
+            if (ok) result.complete(d);
+            else if (++fails < tries) later(Reconnect.delayMs(fails), () -> connect(d));
+            else result.complete(null);
+        });
+    }
+
+    // the next step, unless we're already done (or cancelled)
+    private void later(long delayMs, Runnable next) {
+        wheel.schedule(delayMs, () -> { if (!result.isDone()) next.run(); });
+    }
+
+    private void follow(CompletableFuture<?> f) {
+        step = f;
+        if (result.isDone()) f.cancel(false); // cancelled while we set it up
+    }
+}
@@ -0,0 +1,72 @@
+package trutoothSim;
+
+import java.util.Collection;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicLong;
+
+// continuous scan: every target gets one chance per window to be seen, at a
+// random moment inside it, and each sighting is published right away instead
+// of at the end of the window. Subscribers get normal Flow backpressure; a
+// subscriber that falls a full buffer behind loses sightings (counted in
+// dropped()), since a stale sighting is worth less than holding up the scan.
+public class ScanStream implements Flow.Publisher<DeviceId>, AutoCloseable {
+    private final ScannerSim scanner;
+    private final TimerWheel wheel;
+    private final long windowMs;
+    private final SubmissionPublisher<DeviceId> pub;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed = false;
+
+    ScanStream(ScannerSim scanner, TimerWheel wheel, long windowMs, int buffer) {
+        this.scanner = scanner;
+        this.wheel = wheel;
+        this.windowMs = windowMs;
+        this.pub = new SubmissionPublisher<>(ForkJoinPool.commonPool(), buffer);
+    }
+
+    void start(Collection<String> wantedNames, Collection<String> wantedAddrs) {
+        for (String name : wantedNames) watch(name, null, 0);
+        for (String addr : wantedAddrs) watch(null, addr, 0);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super DeviceId> s) { pub.subscribe(s); }
+
+    public long dropped() { return dropped.get(); }
+
+    // timers already pending fire once more and see closed (or, if close()
+    // lands mid-timer, the offer fails in publish); no need to cancel
+    @Override
+    public void close() {
+        closed = true;
+        pub.close();
+    }
+
+    // one roll for this target somewhere in the window starting windowStart
+    // ms from now, then the same again for the next window
+    private void watch(String name, String addr, long windowStart) {
+        if (closed) return;
+        long at = windowStart + scanner.offsetInWindow(windowMs);
+        long nextWindow = windowStart + windowMs - at;
+        wheel.schedule(at, () -> {
+            if (closed) return;
+            DeviceId d = scanner.sight(name, addr);
+            if (d != null && !publish(d)) return; // closed meanwhile
+            watch(name, addr, nextWindow);
+        });
+    }
+
+    // false once closed: close() on another thread can come between the
+    // check above and the offer, which then throws
+    private boolean publish(DeviceId d) {
+        if (pub.isClosed()) return false;
+        try {
+            if (pub.offer(d, (sub, item) -> false) < 0) dropped.incrementAndGet();
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package trutoothSim;
+
+import java.util.concurrent.CompletableFuture;
+
+// finds devices; ScannerSim is the simulated one. Monitor's scheduler mode
+// uses findAsync, its thread-per-device modes scanWindowMs + sight (waiting
+// out the window themselves); find is the blocking form for simple loops
+// like Main.
+public interface Scanner {
+    DeviceId find(String wantedName, String wantedAddr, int scanMs) throws InterruptedException;
+
+    // how long the caller should wait before sight(); 0 if sight() blocks itself
+    long scanWindowMs(int scanMs);
+
+    // the result of one window; null if the device wasn't seen
+    DeviceId sight(String wantedName, String wantedAddr);
+
+    // find without holding the caller's thread: completes with the device,
+    // or null if it wasn't seen within scanMs (timed on wheel). cancel()
+    // gives up on it.
+    CompletableFuture<DeviceId> findAsync(String wantedName, String wantedAddr, int scanMs, TimerWheel wheel);
+}
@@ -1,31 +1,144 @@
-package trutoothSim;
-
-import java.util.Random;
-
-public class ScannerSim {
-    private final Notice notice;
-    private final Random rng = new Random();
-
-    public ScannerSim(Notice notice) {
-        this.notice = notice;
-    }
-
-    // returns a device sometimes; otherwise null
-    public DeviceId find(String wantedName, String wantedAddr, int scanMs) throws InterruptedException {
-        notice.info("Scanning for devices (" + scanMs + " ms)...");
-        Thread.sleep(Math.min(scanMs, 1000)); // pretend work
-
-        // 50% chance the speaker is "seen" on this scan
-        boolean seen = rng.nextDouble() < 0.50;
-        if (!seen) return null;
-
-        String name = wantedName != null ? wantedName : "Speaker-" + hex2();
-        String addr = wantedAddr != null ? wantedAddr : randomAddr();
-        return new DeviceId(name, addr);
-    }
-
-    private String randomAddr() {
-        return hex2()+":"+hex2()+":"+hex2()+":"+hex2()+":"+hex2()+":"+hex2();
-    }
-    private String hex2() { return String.format("%02X", rng.nextInt(256)); }
-}
+package trutoothSim;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.random.RandomGenerator;
+
+public class ScannerSim implements Scanner {
+    private final Notice notice;
+    private final Clock clock;
+    // one scanner serves every link, so each thread gets its own split;
+    // a single-threaded (SimClock) run therefore stays reproducible
+    private final ThreadLocal<RandomGenerator> rng;
+    private final long salt; // the run's seed, so addresses replay with it
+    private final Map<String, Long> addresses = new ConcurrentHashMap<>(); // see addressOf
+    private final Set<Long> taken = ConcurrentHashMap.newKeySet();
+    private SimTransport world; // knows who left for good, may be null
+
+    public ScannerSim(Notice notice) {
+        this(notice, Clock.SYSTEM);
+    }
+
+    public ScannerSim(Notice notice, Clock clock) {
+        this(notice, clock, new SimRandom());
+    }
+
+    public ScannerSim(Notice notice, Clock clock, SimRandom random) {
+        this.notice = notice;
+        this.clock = clock;
+        this.rng = ThreadLocal.withInitial(random::split);
+        this.salt = random.seed();
+    }
+
+    // returns a device sometimes; otherwise null
+    @Override
+    public DeviceId find(String wantedName, String wantedAddr, int scanMs) throws InterruptedException {
+        notice.info("Scanning for devices ({} ms)...", scanMs);
+        clock.sleep(scanWindowMs(scanMs)); // pretend work
+        return sight(wantedName, wantedAddr);
+    }
+
+    // find without the sleep: the wheel ends the window, and the future
+    // completes with the device, or null if it wasn't seen. cancel() drops
+    // the window. Quiet, unlike find: fleets run thousands of these.
+    @Override
+    public CompletableFuture<DeviceId> findAsync(String wantedName, String wantedAddr,
+                                                 int scanMs, TimerWheel wheel) {
+        CompletableFuture<DeviceId> f = new CompletableFuture<>();
+        TimerWheel.Timeout window = wheel.schedule(scanWindowMs(scanMs), () -> {
+            if (!f.isDone()) f.complete(sight(wantedName, wantedAddr));
+        });
+        f.whenComplete((d, e) -> window.cancel());
+        return f;
+    }
+
+    // one inquiry window for a whole set of targets, by name or by address;
+    // returns every target seen in it (maybe none), never null
+    public List<DeviceId> findAll(Collection<String> wantedNames, Collection<String> wantedAddrs,
+                                  int scanMs) throws InterruptedException {
+        int targets = wantedNames.size() + wantedAddrs.size();
+        notice.info("Scanning for {} devices ({} ms)...", targets, scanMs);
+        clock.sleep(scanWindowMs(scanMs)); // one window, however many targets
+        return sightAll(wantedNames, wantedAddrs);
+    }
+
+    // keeps scanning until closed, publishing each sighting the moment it
+    // happens; with a buffer of B a subscriber can lag B sightings behind
+    public ScanStream stream(Collection<String> wantedNames, Collection<String> wantedAddrs,
+                             int scanMs, TimerWheel wheel, int buffer) {
+        notice.info("Continuous scan for {} devices ({} ms windows)...",
+                    wantedNames.size() + wantedAddrs.size(), scanWindowMs(scanMs));
+        ScanStream s = new ScanStream(this, wheel, scanWindowMs(scanMs), buffer);
+        s.start(wantedNames, wantedAddrs);
+        return s;
+    }
+
+    void world(SimTransport world) { this.world = world; }
+
+    // how long one scan window really lasts
+    @Override
+    public long scanWindowMs(int scanMs) { return Math.min(scanMs, 1000); }
+
+    // the end of a scan window without the sleep; null if nothing was seen
+    @Override
+    public DeviceId sight(String wantedName, String wantedAddr) {
+        // 50% chance the speaker is "seen" on this scan
+        RandomGenerator rng = this.rng.get();
+        boolean seen = rng.nextDouble() < 0.50;
+        if (!seen || world != null && world.isGone(wantedName, wantedAddr)) return null;
+
+        String name = wantedName != null ? wantedName : "Speaker-" + hex2(rng);
+        if (wantedAddr != null) return DeviceId.of(name, wantedAddr);
+        return DeviceId.of(name, addressOf(name));
+    }
+
+    // the MAC a simulated device without a known address answers with. One
+    // per name for the whole run, and never one shared by two names: two
+    // devices on one MAC are one device to DeviceId.of and to the registry.
+    // A fresh random MAC per sighting would grow DeviceId's table for good.
+    long addressOf(String name) {
+        Long a = addresses.get(name);
+        if (a != null) return a;
+        return addresses.computeIfAbsent(name, n -> {
+            long h = DeviceId.hash64(n) ^ salt;
+            long addr;
+            do {
+                addr = scramble(h++) & DeviceId.ADDRESS_MASK;
+            } while (!taken.add(addr)); // a 48-bit clash: take the next one
+            return addr;
+        });
+    }
+
+    private static long scramble(long h) { // splitmix64's finish
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+    // when inside a window a device happens to answer
+    long offsetInWindow(long windowMs) { return rng.get().nextInt((int) Math.max(1, windowMs)); }
+
+    // the end of a batched window without the sleep
+    public List<DeviceId> sightAll(Collection<String> wantedNames, Collection<String> wantedAddrs) {
+        List<DeviceId> seen = new ArrayList<>();
+        for (String name : wantedNames) {
+            DeviceId d = sight(name, null);
+            if (d != null) seen.add(d);
+        }
+        for (String addr : wantedAddrs) {
+            DeviceId d = sight(null, addr);
+            if (d != null) seen.add(d);
+        }
+        return seen;
+    }
+
+    private static String hex2(RandomGenerator rng) {
+        int b = rng.nextInt(256);
+        return new String(new char[] { DeviceId.HEX[b >>> 4], DeviceId.HEX[b & 15] });
+    }
+}
@@ -1,31 +1,97 @@
-package trutoothSim;
-
-public class SessionData {
-    public final DeviceId device;
-    public long startMs = -1;
-    public long endMs   = -1;
-
-    public int drops = 0;
-    public int reconnectAttempts = 0;
-    public int successfulReconnects = 0;
-
-    public SessionData(DeviceId d) { this.device = d; }
-
-    public void start() { startMs = System.currentTimeMillis(); }
-    public void end()   { endMs = System.currentTimeMillis(); }
-
-    private long elapsedMs() {
-        long stop = (endMs >= 0 ? endMs : System.currentTimeMillis());
-        return (startMs >= 0 ? stop - startMs : 0);
-    }
-
-    public String summary() {
-        long sec = elapsedMs() / 1000;
-        return "=== Session Summary ===\n"
-             + "Device: " + device.shortStr() + "\n"
-             + "Time: " + sec + " s\n"
-             + "Drops: " + drops + "\n"
-             + "Reconnect attempts: " + reconnectAttempts + "\n"
-             + "Successful reconnects: " + successfulReconnects + "\n";
-    }
-}
+package trutoothSim;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class SessionData {
+    public final DeviceId device;
+    private final Clock clock;
+    public volatile long startMs = -1;
+    public volatile long endMs   = -1;
+
+    // LongAdder stripes under contention, so any number of scheduler threads
+    // can count without fighting over one cache line, and never allocates
+    // once its cells exist
+    private final LongAdder drops = new LongAdder();
+    private final LongAdder reconnectAttempts = new LongAdder();
+    private final LongAdder successfulReconnects = new LongAdder();
+
+    public final Latencies latency = Latencies.session();
+    private final Latencies fleet; // also fed, when the session is part of one
+
+    public SessionData(DeviceId d) { this(d, Clock.SYSTEM); }
+
+    public SessionData(DeviceId d, Clock clock) { this(d, clock, null); }
+
+    public SessionData(DeviceId d, Clock clock, Latencies fleet) {
+        this.device = d;
+        this.clock = clock;
+        this.fleet = fleet;
+    }
+
+    public void start() { startMs = clock.now(); }
+    public void end()   { endMs = clock.now(); }
+
+    public void drop()             { drops.increment(); }
+    public void reconnectAttempt() { reconnectAttempts.increment(); }
+    public void reconnected()      { successfulReconnects.increment(); }
+
+    public void scanTook(long ms) {
+        latency.scan.record(ms);
+        if (fleet != null) fleet.scan.record(ms);
+    }
+
+    public void connectTook(long ms) {
+        latency.connect.record(ms);
+        if (fleet != null) fleet.connect.record(ms);
+    }
+
+    public void outageLasted(long ms) {
+        latency.outage.record(ms);
+        if (fleet != null) fleet.outage.record(ms);
+    }
+
+    public long drops()                { return drops.sum(); }
+    public long reconnectAttempts()    { return reconnectAttempts.sum(); }
+    public long successfulReconnects() { return successfulReconnects.sum(); }
+
+    // all the numbers at once, read while writers keep going
+    public static final class Snapshot {
+        public final long drops;
+        public final long reconnectAttempts;
+        public final long successfulReconnects;
+        public final long elapsedMs;
+
+        Snapshot(long drops, long reconnectAttempts, long successfulReconnects, long elapsedMs) {
+            this.drops = drops;
+            this.reconnectAttempts = reconnectAttempts;
+            this.successfulReconnects = successfulReconnects;
+            this.elapsedMs = elapsedMs;
+        }
+    }
+
+    // Nobody is blocked, so the counters are summed one after the other.
+    // A success is always counted after its attempt, and we read successes
+    // first, so a snapshot never shows more successes than attempts.
+    public Snapshot snapshot() {
+        long ok = successfulReconnects.sum();
+        long tries = reconnectAttempts.sum();
+        return new Snapshot(drops.sum(), tries, ok, elapsedMs());
+    }
+
+    private long elapsedMs() {
+        long stop = (endMs >= 0 ? endMs : clock.now());
+        return (startMs >= 0 ? stop - startMs : 0);
+    }
+
+    public String summary() {
+        Snapshot s = snapshot();
+        long sec = s.elapsedMs / 1000;
+        return "=== Session Summary ===\n"
+             + "Device: " + device.shortStr() + "\n"
+             + "Time: " + sec + " s\n"
+             + "Drops: " + s.drops + "\n"
+             + "Reconnect attempts: " + s.reconnectAttempts + "\n"
+             + "Successful reconnects: " + s.successfulReconnects + "\n"
+             + latency;
+    }
+}
@@ -0,0 +1,37 @@
+package trutoothSim;
+
+// discrete-event time for capacity planning: nothing really sleeps, time
+// just jumps forward one wheel tick at a time (or straight to the end when
+// no timer is pending) and every timer runs inline on the caller's thread.
+// That makes it single-threaded by design: build a Monitor on it and drive
+// it with advance(), e.g. a simulated day of a big fleet in seconds.
+public class SimClock implements Clock {
+    private final TimerWheel wheel;
+    private long now = 0;
+
+    public SimClock(long tickMs, Notice notice) {
+        this.wheel = new TimerWheel(tickMs, null, notice, this, false);
+    }
+
+    public TimerWheel wheel() { return wheel; }
+
+    @Override
+    public long now() { return now; }
+
+    // a "sleep" is just time passing, with everything due running meanwhile
+    @Override
+    public void sleep(long ms) { advance(ms); }
+
+    public void advance(long ms) {
+        long end = now + ms;
+        long tick = wheel.tickMs();
+        while (now < end) {
+            if (wheel.size() == 0) {
+                now = end;
+                break;
+            }
+            now = Math.min(end, now + tick);
+            wheel.poll();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package trutoothSim;
+
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+// where every simulator gets its randomness: one root seed, split into an
+// independent generator per ConnectionSim (and per thread in ScannerSim).
+// A generator is never shared between threads, so nobody fights over a
+// CAS'd seed the way a shared java.util.Random does, and a discrete-event
+// run built from the same seed makes the same choices every time.
+public class SimRandom {
+    private final long seed;
+    private final SplittableRandom root;
+
+    // a fresh seed, printed by Main so the run can be replayed with --seed
+    public SimRandom() {
+        this(new SplittableRandom().nextLong());
+    }
+
+    public SimRandom(long seed) {
+        this.seed = seed;
+        this.root = new SplittableRandom(seed);
+    }
+
+    public long seed() { return seed; }
+
+    // callers split in a fixed order (links are added in order), which is
+    // what makes a run repeatable
+    public synchronized RandomGenerator split() { return root.split(); }
+}
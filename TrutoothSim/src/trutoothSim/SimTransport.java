@@ -0,0 +1,60 @@
+package trutoothSim;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// ScannerSim + ConnectionSim as a Transport, all drawing from one seed
+public class SimTransport implements Transport {
+    private final SimRandom random;
+    private final Set<String> gone = ConcurrentHashMap.newKeySet(); // names and addresses that left
+    private final AtomicInteger left = new AtomicInteger();
+    private double leaveOdds = 0;
+
+    public SimTransport() { this(new SimRandom()); }
+
+    public SimTransport(SimRandom random) { this.random = random; }
+
+    public SimRandom random() { return random; }
+
+    // the chance that a drop is the device leaving for good (powered off,
+    // carried away): it is never seen or connected to again. Set before
+    // any connection is made.
+    public void leave(double odds) { leaveOdds = odds; }
+
+    public int gone() { return left.get(); }
+
+    // by name and by address, whichever the scanner gets asked for
+    void left(DeviceId d) {
+        if (d.name != null) gone.add(d.name);
+        if (d.hasAddress()) gone.add(d.address());
+        left.incrementAndGet();
+    }
+
+    boolean isGone(String name, String address) {
+        if (left.get() == 0) return false;
+        return name != null ? gone.contains(name) : gone.contains(DeviceId.format(DeviceId.parse(address)));
+    }
+
+    boolean isGone(DeviceId d) {
+        if (left.get() == 0) return false;
+        return d.name != null && gone.contains(d.name) || d.hasAddress() && gone.contains(d.address());
+    }
+
+    @Override
+    public String name() { return "sim"; }
+
+    @Override
+    public Scanner scanner(Notice notice, TimerWheel wheel) {
+        ScannerSim s = new ScannerSim(notice, wheel.clock(), random);
+        s.world(this);
+        return s;
+    }
+
+    @Override
+    public Connection connection(Notice notice, TimerWheel wheel) {
+        ConnectionSim c = new ConnectionSim(notice, wheel, wheel.clock(), random.split());
+        if (leaveOdds > 0) c.leaving(leaveOdds, this);
+        return c;
+    }
+}
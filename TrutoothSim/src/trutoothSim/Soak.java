@@ -0,0 +1,105 @@
+package trutoothSim;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+// the Link lifecycle (connect -> drop -> backoff -> reconnect) for millions
+// of devices in virtual time, with every byte of per-device state in a
+// StateTable. Each device has exactly one pending event, so the schedule
+// is a ring of per-tick buckets threaded through StateTable.next: no
+// Timeout, Link or SessionData objects, and the heap stays tiny.
+// Same odds as ConnectionSim: 200-500 ms to connect, 85% success, a drop
+// 5-13 s later; backoff follows Reconnect.
+public class Soak {
+    private static final long TICK_MS = 10;
+    private static final int SLOTS = 1 << 16; // ~11 min ahead, plenty for 23 s max
+    private static final int NONE = -1;
+
+    private final StateTable t;
+    private final int[] heads = new int[SLOTS];
+    private final RandomGenerator rng;
+    private long tick = 0;
+    private long events = 0;
+
+    public Soak(int devices, SimRandom random) {
+        this.t = new StateTable(devices);
+        this.rng = random.split();
+        Arrays.fill(heads, NONE);
+        // everyone starts with a connect somewhere in the first second
+        for (int i = 0; i < devices; i++) at(i, rng.nextInt(1000));
+    }
+
+    public StateTable table() { return t; }
+    public long nowMs() { return tick * TICK_MS; }
+    public long events() { return events; }
+
+    public void advance(long ms) {
+        long end = tick + ms / TICK_MS;
+        while (tick < end) {
+            tick++;
+            int slot = (int) (tick & (SLOTS - 1));
+            int i = heads[slot];
+            heads[slot] = NONE;
+            while (i != NONE) {
+                int next = t.next(i);
+                step(i);
+                events++;
+                i = next;
+            }
+        }
+    }
+
+    // counts what Link's session does: the first connect isn't a reconnect
+    // attempt, each retry() after a failure or a drop is, and a connect is
+    // a reconnect once the device has been connected before (so has dropped)
+    private void step(int i) {
+        if (t.connected(i)) {
+            // the drop came: same as Link.onDrop -> retry -> connect
+            t.connected(i, false);
+            t.countDrop(i);
+            retry(i);
+            return;
+        }
+        if (rng.nextDouble() < 0.85) {
+            t.connected(i, true);
+            if (t.drops(i) > 0) t.countReconnect(i);
+            t.fails(i, 0);
+            at(i, 5000 + rng.nextInt(8000)); // the drop
+        } else {
+            retry(i);
+        }
+    }
+
+    private void retry(int i) {
+        int fails = t.fails(i) + 1;
+        t.fails(i, fails);
+        t.countReconnectAttempt(i);
+        at(i, Reconnect.delayMs(fails) + connectDelayMs());
+    }
+
+    private long connectDelayMs() { return 200 + rng.nextInt(300); }
+
+    private void at(int i, long delayMs) {
+        long due = tick + Math.max(1, (delayMs + TICK_MS - 1) / TICK_MS);
+        int slot = (int) (due & (SLOTS - 1));
+        t.next(i, heads[slot]);
+        heads[slot] = i;
+    }
+
+    public String status() {
+        long[] sum = t.totals();
+        Runtime rt = Runtime.getRuntime();
+        long gcCount = 0, gcMs = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+            gcMs += Math.max(0, gc.getCollectionTime());
+        }
+        return "Soak " + t.size() + " @ " + (nowMs() / 1000) + " s: connected " + sum[3]
+             + " | drops " + sum[0] + " | reconnects " + sum[2] + "/" + sum[1]
+             + " | off-heap " + (t.offHeapBytes() >> 20) + " MB"
+             + " | heap " + ((rt.totalMemory() - rt.freeMemory()) >> 20) + " MB"
+             + " | gc " + gcCount + "x / " + gcMs + " ms";
+    }
+}
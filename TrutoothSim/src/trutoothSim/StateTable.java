@@ -0,0 +1,77 @@
+package trutoothSim;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+// per-device link state for very big fleets, kept off the heap: one direct
+// buffer per field (struct of arrays), indexed by device number. Ten
+// million devices cost ~210 MB of native memory and no objects at all, so
+// the GC has nothing to trace however big the fleet gets. Not thread-safe:
+// meant for a single-threaded soak like Soak.
+public class StateTable {
+    public static final int BYTES_PER_DEVICE = 1 + 4 * 5;
+
+    private final int size;
+    private final ByteBuffer connected;
+    private final IntBuffer fails;
+    private final IntBuffer drops;
+    private final IntBuffer reconnectAttempts;
+    private final IntBuffer reconnects;
+    private final IntBuffer next; // free for the driver's own event lists
+
+    // direct buffers count against -XX:MaxDirectMemorySize, which defaults
+    // to the heap size: a small -Xmx caps the table too, so say what to pass
+    public StateTable(int devices) {
+        try {
+            this.size = devices;
+            this.connected = ByteBuffer.allocateDirect(devices);
+            this.fails = column(devices, 4).asIntBuffer();
+            this.drops = column(devices, 4).asIntBuffer();
+            this.reconnectAttempts = column(devices, 4).asIntBuffer();
+            this.reconnects = column(devices, 4).asIntBuffer();
+            this.next = column(devices, 4).asIntBuffer();
+        } catch (OutOfMemoryError e) {
+            long mb = ((long) devices * BYTES_PER_DEVICE >> 20) + 1;
+            throw new OutOfMemoryError(devices + " devices need " + mb + " MB of direct memory;"
+                                       + " run with -XX:MaxDirectMemorySize=" + mb + "m or more ("
+                                       + e.getMessage() + ")");
+        }
+    }
+
+    private static ByteBuffer column(int devices, int width) {
+        return ByteBuffer.allocateDirect(devices * width).order(ByteOrder.nativeOrder());
+    }
+
+    public int size() { return size; }
+    public long offHeapBytes() { return (long) size * BYTES_PER_DEVICE; }
+
+    public boolean connected(int i)          { return connected.get(i) != 0; }
+    public void connected(int i, boolean c)  { connected.put(i, (byte) (c ? 1 : 0)); }
+    public int fails(int i)                  { return fails.get(i); }
+    public void fails(int i, int n)          { fails.put(i, n); }
+    public int next(int i)                   { return next.get(i); }
+    public void next(int i, int n)           { next.put(i, n); }
+
+    // counted like SessionData's: every retry is a reconnect attempt, and
+    // only a connect after an earlier one is a reconnect
+    public void countDrop(int i)             { drops.put(i, drops.get(i) + 1); }
+    public void countReconnectAttempt(int i) { reconnectAttempts.put(i, reconnectAttempts.get(i) + 1); }
+    public void countReconnect(int i)        { reconnects.put(i, reconnects.get(i) + 1); }
+
+    public int drops(int i)             { return drops.get(i); }
+    public int reconnectAttempts(int i) { return reconnectAttempts.get(i); }
+    public int reconnects(int i)        { return reconnects.get(i); }
+
+    // fleet totals: { drops, reconnect attempts, reconnects, connected now }
+    public long[] totals() {
+        long[] t = new long[4];
+        for (int i = 0; i < size; i++) {
+            t[0] += drops.get(i);
+            t[1] += reconnectAttempts.get(i);
+            t[2] += reconnects.get(i);
+            t[3] += connected.get(i);
+        }
+        return t;
+    }
+}
@@ -0,0 +1,84 @@
+package trutoothSim;
+
+import java.util.random.RandomGenerator;
+
+// what a room-wide blip does: N devices lose their link at the same
+// instant and reconnect under one backoff policy, in virtual time on a
+// SimClock, with ConnectionSim's odds (200-500 ms per connect, 85% ok).
+// We count how many connects are in flight at once and how many start in
+// the busiest 100 ms, which is what the radio/adapter has to survive.
+// Unlike ConnectionSim the adapter here is shared and has room for
+// ADAPTER_SLOTS connects at a time: past that, the odds of each one shrink
+// in proportion, so a herd hurts itself. An optional ConnectGate sits in
+// front of every attempt, as it does in Link.
+public class Storm {
+    private static final long GIVE_UP_MS = 30 * 60_000L;
+    private static final int ADAPTER_SLOTS = 64;
+
+    public final String policy;
+    public final ConnectGate gate; // may be null
+    public int peakInFlight;
+    public int peakStarts; // in any 100 ms
+    public long attempts;
+    public final Histogram recovery = new Histogram(3, 24); // drop -> connected again, ms
+
+    private final SimClock sim;
+    private final RandomGenerator rng;
+    private final int[] starts = new int[(int) (GIVE_UP_MS / 100) + 1];
+    private int inFlight;
+
+    private Storm(Reconnect.Policy policy, String gateSpec, SimRandom random) {
+        this.sim = new SimClock(10, new Notice(Notice.Level.OFF));
+        this.rng = random.split();
+        this.gate = gateSpec != null ? ConnectGate.parse(gateSpec, sim.wheel()) : null;
+        this.policy = policy + (gate != null ? " gated " + gateSpec : "");
+    }
+
+    // gateSpec as for ConnectGate.parse, or null for no gate
+    public static Storm run(int devices, Reconnect.Policy policy, String gateSpec, SimRandom random) {
+        Storm s = new Storm(policy, gateSpec, random);
+        for (int i = 0; i < devices; i++) {
+            Reconnect backoff = new Reconnect(policy, s.rng);
+            backoff.onDrop(); // as in Link.onDrop -> retry
+            s.later(backoff.nextDelayMs(), () -> s.connect(backoff));
+        }
+        while (s.recovery.count() < devices && s.sim.now() < GIVE_UP_MS) s.sim.advance(1000);
+        return s;
+    }
+
+    private void connect(Reconnect backoff) {
+        if (gate != null) gate.admit(() -> attempt(backoff));
+        else attempt(backoff);
+    }
+
+    private void attempt(Reconnect backoff) {
+        attempts++;
+        inFlight++;
+        peakInFlight = Math.max(peakInFlight, inFlight);
+        peakStarts = Math.max(peakStarts, ++starts[(int) (sim.now() / 100)]);
+        double odds = 0.85 * Math.min(1.0, (double) ADAPTER_SLOTS / inFlight);
+        later(200 + rng.nextInt(300), () -> {
+            inFlight--;
+            boolean ok = rng.nextDouble() < odds;
+            if (gate != null) gate.finished(ok);
+            if (ok) {
+                recovery.record(sim.now());
+                return;
+            }
+            backoff.onFailure();
+            later(backoff.nextDelayMs(), () -> connect(backoff));
+        });
+    }
+
+    private void later(long delayMs, Runnable step) {
+        if (sim.now() + delayMs < GIVE_UP_MS) sim.wheel().schedule(delayMs, step);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-38s in flight %5d | starts/100ms %5d | attempts %6d"
+                             + " | recovered p50 %6d / p99 %6d / all %6d ms",
+                             policy, peakInFlight, peakStarts, attempts,
+                             recovery.percentile(50), recovery.percentile(99), recovery.max());
+    }
+}
@@ -0,0 +1,42 @@
+package trutoothSim;
+
+import java.lang.reflect.Method;
+
+// starts platform or virtual threads. Virtual threads are Java 21+, and this
+// project still builds on 17, so we reach Thread.ofVirtual() by reflection.
+public final class Threads {
+    private static final Method OF_VIRTUAL = lookup("java.lang.Thread", "ofVirtual");
+    private static final Method NAME = lookup("java.lang.Thread$Builder", "name", String.class);
+    private static final Method UNSTARTED = lookup("java.lang.Thread$Builder", "unstarted", Runnable.class);
+
+    private Threads() {}
+
+    public static boolean hasVirtual() {
+        return OF_VIRTUAL != null && NAME != null && UNSTARTED != null;
+    }
+
+    public static Thread start(boolean virtual, String name, Runnable r) {
+        Thread t = virtual ? newVirtual(name, r) : new Thread(r, name);
+        if (!virtual) t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    private static Thread newVirtual(String name, Runnable r) {
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = NAME.invoke(builder, name);
+            return (Thread) UNSTARTED.invoke(builder, r);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("virtual threads unavailable", e);
+        }
+    }
+
+    private static Method lookup(String cls, String name, Class<?>... params) {
+        try {
+            return Class.forName(cls).getMethod(name, params);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package trutoothSim;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+// hierarchical timing wheel for every future deadline in the sim: link
+// drops, backoff waits and scan windows. Four levels of 64 slots; a level
+// covers 64x the span of the one below, so with 10 ms ticks the wheel
+// reaches ~46 h before spilling into the overflow list. Insert and cancel
+// are O(1) list splices, no matter how many timeouts are pending.
+// Normally a ticker thread follows the wall clock; a SimClock instead
+// drives the wheel itself through poll() in virtual time.
+public class TimerWheel {
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final int OVERFLOW = LEVELS * SLOTS; // last bucket
+
+    private final long tickMs;
+    private final Executor exec; // null: run tasks on the ticker thread
+    private final Notice notice;
+    private final Clock clock;
+    private final long startMs;
+    private final Timeout[] buckets = new Timeout[OVERFLOW + 1];
+    private final Thread ticker; // null when a SimClock drives us
+
+    private long tick = 0; // last tick processed
+    private int pending = 0;
+    private volatile boolean stopped = false;
+
+    public TimerWheel(long tickMs, Executor exec, Notice notice) {
+        this(tickMs, exec, notice, Clock.SYSTEM, true);
+    }
+
+    TimerWheel(long tickMs, Executor exec, Notice notice, Clock clock, boolean tick) {
+        this.tickMs = tickMs;
+        this.exec = exec;
+        this.notice = notice;
+        this.clock = clock;
+        this.startMs = clock.now();
+        this.ticker = tick ? new Thread(this::loop, "timer-wheel") : null;
+        if (ticker != null) {
+            ticker.setDaemon(true);
+            ticker.start();
+        }
+    }
+
+    public Clock clock() { return clock; }
+    public long tickMs() { return tickMs; }
+
+    public static final class Timeout {
+        private final TimerWheel wheel;
+        private final Runnable task;
+        private long deadline; // in ticks
+        private int bucket = -1;
+        private Timeout prev, next;
+        private boolean done = false;
+
+        private Timeout(TimerWheel wheel, long deadline, Runnable task) {
+            this.wheel = wheel;
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        // false if it already ran or was cancelled
+        public boolean cancel() { return wheel.cancel(this); }
+    }
+
+    public Timeout schedule(long delayMs, Runnable task) {
+        // the first tick at or after now + delay, so a timer never fires
+        // early; nowTick() rounds down and can't be used as the base
+        long due = clock.now() + Math.max(delayMs, 0) - startMs;
+        long deadline = (due + tickMs - 1) / tickMs;
+        synchronized (this) {
+            Timeout t = new Timeout(this, deadline, task);
+            if (stopped) {
+                t.done = true; // shutting down: never runs
+                return t;
+            }
+            place(t, tick + 1);
+            pending++;
+            return t;
+        }
+    }
+
+    public synchronized int size() { return pending; }
+
+    public void stop() {
+        stopped = true;
+        if (ticker != null) ticker.interrupt();
+    }
+
+    private synchronized boolean cancel(Timeout t) {
+        if (t.done) return false;
+        t.done = true;
+        unlink(t);
+        pending--;
+        return true;
+    }
+
+    // the level is the lowest one where the deadline and the current tick
+    // agree on every higher digit; it then waits in the slot for its digit
+    private void place(Timeout t, long earliest) {
+        if (t.deadline < earliest) t.deadline = earliest;
+        long d = t.deadline;
+        int b = OVERFLOW;
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = BITS * (level + 1);
+            if ((d >>> shift) == (tick >>> shift)) {
+                b = level * SLOTS + (int) ((d >>> (BITS * level)) & MASK);
+                break;
+            }
+        }
+        t.bucket = b;
+        t.prev = null;
+        t.next = buckets[b];
+        if (t.next != null) t.next.prev = t;
+        buckets[b] = t;
+    }
+
+    private void unlink(Timeout t) {
+        if (t.prev != null) t.prev.next = t.next;
+        else buckets[t.bucket] = t.next;
+        if (t.next != null) t.next.prev = t.prev;
+        t.prev = t.next = null;
+        t.bucket = -1;
+    }
+
+    // move one whole bucket down a level (or more) now that its turn came
+    private void cascade(int b) {
+        Timeout t = buckets[b];
+        buckets[b] = null;
+        while (t != null) {
+            Timeout next = t.next;
+            place(t, tick);
+            t = next;
+        }
+    }
+
+    // process every tick up to now; returns the expired timeouts as a list
+    private synchronized Timeout expire(long upTo) {
+        Timeout due = null;
+        while (tick < upTo) {
+            tick++;
+            if ((tick & ((1L << (BITS * LEVELS)) - 1)) == 0) cascade(OVERFLOW);
+            for (int level = LEVELS - 1; level >= 1; level--) {
+                if ((tick & ((1L << (BITS * level)) - 1)) == 0) {
+                    cascade(level * SLOTS + (int) ((tick >>> (BITS * level)) & MASK));
+                }
+            }
+            int b = (int) (tick & MASK);
+            Timeout t = buckets[b];
+            buckets[b] = null;
+            while (t != null) {
+                Timeout next = t.next;
+                t.done = true;
+                t.bucket = -1;
+                t.prev = null;
+                t.next = due;
+                due = t;
+                pending--;
+                t = next;
+            }
+        }
+        return due;
+    }
+
+    // run everything due by the clock's now
+    void poll() {
+        Timeout t = expire(nowTick());
+        while (t != null) {
+            Timeout next = t.next;
+            t.next = null;
+            run(t.task);
+            t = next;
+        }
+    }
+
+    private void run(Runnable task) {
+        try {
+            if (exec != null) exec.execute(task);
+            else task.run();
+        } catch (RejectedExecutionException e) {
+            // executor is shutting down, drop it
+        } catch (RuntimeException e) {
+            notice.error("Timer task failed: {}", e);
+        }
+    }
+
+    private long nowTick() { return (clock.now() - startMs) / tickMs; }
+
+    private void loop() {
+        try {
+            while (!stopped) {
+                poll();
+                long nextAt = startMs + (nowTick() + 1) * tickMs;
+                Thread.sleep(Math.max(1, nextAt - clock.now()));
+            }
+        } catch (InterruptedException e) {
+            // stopped
+        }
+    }
+}
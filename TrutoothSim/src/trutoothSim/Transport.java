@@ -0,0 +1,23 @@
+package trutoothSim;
+
+import java.util.ServiceLoader;
+
+// a radio to run the monitor on. Providers are found with ServiceLoader:
+// "sim" (SimTransport) is declared in module-info, the JSR-82 one is
+// listed in jsr82.jar's META-INF/services.
+public interface Transport {
+    String name();
+
+    // wheel is for timed work such as drop events, shared by every link;
+    // wheel.clock() is the time to use, which may be a SimClock
+    Scanner scanner(Notice notice, TimerWheel wheel);
+
+    Connection connection(Notice notice, TimerWheel wheel);
+
+    static Transport load(String name) {
+        for (Transport t : ServiceLoader.load(Transport.class)) {
+            if (t.name().equalsIgnoreCase(name)) return t;
+        }
+        throw new IllegalArgumentException("No transport named " + name);
+    }
+}
@@ -0,0 +1,38 @@
+package trutoothSim;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class DeviceIdTest {
+    @Test
+    void namesWithTheSameStringHashAreTwoDevices() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+
+        DeviceId a = DeviceId.of("Aa", (String) null);
+        DeviceId b = DeviceId.of("BB", (String) null);
+
+        assertNotEquals(a.key(), b.key());
+        assertSame(a, DeviceId.of("Aa", (String) null));
+        assertSame(b, DeviceId.of("BB", (String) null));
+        assertFalse(a.hasAddress());
+    }
+
+    @Test
+    void aMillionNamesGetAMillionKeys() {
+        Set<Long> keys = new HashSet<>();
+        for (int i = 0; i < 1_000_000; i++) keys.add(new DeviceId("Speaker-" + i, (String) null).key());
+        assertEquals(1_000_000, keys.size());
+    }
+
+    @Test
+    void addressesRoundTrip() {
+        DeviceId d = DeviceId.of("Speaker", "aa-bb-cc-dd-ee-ff");
+        assertEquals("AA:BB:CC:DD:EE:FF", d.address());
+        assertEquals(0xAABBCCDDEEFFL, d.key());
+        assertThrows(IllegalArgumentException.class, () -> DeviceId.parse("AA:BB"));
+    }
+}
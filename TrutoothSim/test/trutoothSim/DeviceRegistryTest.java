@@ -0,0 +1,110 @@
+package trutoothSim;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+class DeviceRegistryTest {
+    // a value that knows which key it was stored under
+    record Val(long key, int version) {}
+
+    // few keys and lots of removes, so tombstones get reused and dropped
+    // on rehash; keys spread over the whole long range, negatives too
+    static long key(Random rng, int keys) {
+        return (rng.nextInt(keys) * 0x9E3779B97F4A7C15L) ^ 0x5DEECE66DL;
+    }
+
+    @Test
+    void behavesLikeAHashMap() {
+        DeviceRegistry<Val> reg = new DeviceRegistry<>(16, 4);
+        Map<Long, Val> model = new HashMap<>();
+        Random rng = new Random(17);
+
+        for (int i = 0; i < 500_000; i++) {
+            long k = key(rng, 5_000);
+            Val v = new Val(k, i);
+            switch (rng.nextInt(6)) {
+                case 0, 1 -> assertEquals(model.put(k, v), reg.put(k, v));
+                case 2 -> assertEquals(model.putIfAbsent(k, v), reg.putIfAbsent(k, v));
+                case 3 -> assertEquals(model.computeIfAbsent(k, x -> v), reg.computeIfAbsent(k, x -> v));
+                case 4 -> assertEquals(model.remove(k), reg.remove(k));
+                default -> assertEquals(model.get(k), reg.get(k));
+            }
+            if (i % 1000 == 0) assertEquals(model.size(), reg.size());
+        }
+
+        Map<Long, Val> seen = new HashMap<>();
+        reg.forEach((k, v) -> assertNull(seen.put(k, v), "visited twice"));
+        assertEquals(model, seen);
+    }
+
+    @Test
+    void concurrentWritersAndReadersAgree() throws Exception {
+        int writers = 4, readers = 2, keys = 20_000;
+        DeviceRegistry<Val> reg = new DeviceRegistry<>(16, 4); // small, so tables grow under the readers
+        List<Map<Long, Val>> models = new ArrayList<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        AtomicBoolean done = new AtomicBoolean();
+
+        for (int w = 0; w < writers; w++) {
+            int me = w;
+            Map<Long, Val> model = new HashMap<>(); // keys are split by writer, so each model is exact
+            models.add(model);
+            threads.add(new Thread(() -> run(failure, go, () -> {
+                Random rng = new Random(me);
+                for (int i = 0; i < 300_000; i++) {
+                    long k = key(rng, keys) * writers + me;
+                    if (rng.nextInt(3) == 0) assertEquals(model.remove(k), reg.remove(k));
+                    else {
+                        Val v = new Val(k, i);
+                        assertEquals(model.put(k, v), reg.put(k, v));
+                    }
+                }
+            })));
+        }
+        for (int r = 0; r < readers; r++) {
+            int me = r;
+            threads.add(new Thread(() -> run(failure, go, () -> {
+                Random rng = new Random(100 + me);
+                while (!done.get() && failure.get() == null) {
+                    long k = key(rng, keys) * writers + rng.nextInt(writers);
+                    Val v = reg.get(k);
+                    if (v != null) assertEquals(k, v.key(), "value under the wrong key");
+                }
+            })));
+        }
+        for (Thread t : threads) t.start();
+        go.countDown();
+        for (Thread t : threads.subList(0, writers)) t.join();
+        done.set(true);
+        for (Thread t : threads) t.join();
+        if (failure.get() != null) throw new AssertionError(failure.get());
+
+        int size = 0;
+        for (Map<Long, Val> model : models) {
+            size += model.size();
+            for (Map.Entry<Long, Val> e : model.entrySet()) assertSame(e.getValue(), reg.get(e.getKey()));
+        }
+        assertEquals(size, reg.size());
+    }
+
+    private static void run(AtomicReference<Throwable> failure, CountDownLatch go, Runnable body) {
+        try {
+            go.await();
+            body.run();
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+}
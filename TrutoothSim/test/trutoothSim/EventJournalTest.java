@@ -0,0 +1,45 @@
+package trutoothSim;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EventJournalTest {
+    static List<Long> times(Path dir) throws Exception {
+        List<Long> seen = new ArrayList<>();
+        EventJournal.read(dir, (t, key, type, ms) -> seen.add(t));
+        return seen;
+    }
+
+    @Test
+    void strayFilesAreIgnored(@TempDir Path dir) throws Exception {
+        for (String stray : new String[] { "events-old.bin", "events-.bin", "events-12x.bin",
+                                           "events-99999999999.bin", "events-000002 (copy).bin" }) {
+            Files.writeString(dir.resolve(stray), "not a segment");
+        }
+        try (EventJournal j = new EventJournal(dir, 1)) {
+            j.append(1, 7, EventJournal.Type.FOUND, 10);
+            j.append(2, 7, EventJournal.Type.DROP, 0);
+        }
+        assertTrue(Files.exists(dir.resolve("events-000001.bin")));
+        assertEquals(List.of(1L, 2L), times(dir));
+    }
+
+    @Test
+    void reopeningStartsTheNextSegment(@TempDir Path dir) throws Exception {
+        try (EventJournal j = new EventJournal(dir, 1)) {
+            j.append(1, 7, EventJournal.Type.FOUND, 10);
+        }
+        try (EventJournal j = new EventJournal(dir, 1)) {
+            j.append(2, 7, EventJournal.Type.DROP, 0);
+        }
+        assertTrue(Files.exists(dir.resolve("events-000002.bin")));
+        assertEquals(List.of(1L, 2L), times(dir));
+    }
+}
@@ -0,0 +1,96 @@
+package trutoothSim;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HistoryStoreTest {
+    static final Notice QUIET = new Notice(Notice.Level.OFF);
+    static final DeviceId SPEAKER = new DeviceId("MySpeaker", "AA:BB:CC:DD:EE:FF");
+
+    static long events(HistoryStore.DeviceHistory h) {
+        long n = 0;
+        for (long c : h.events) n += c;
+        return n;
+    }
+
+    @Test
+    void everyAcceptedPutSurvivesARacingClose(@TempDir Path dir) throws Exception {
+        for (int round = 0; round < 20; round++) {
+            Path d = dir.resolve("r" + round);
+            HistoryStore store = new HistoryStore(d, QUIET);
+            AtomicLong accepted = new AtomicLong();
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                Thread t = new Thread(() -> {
+                    long mine = 0;
+                    while (store.event(mine, SPEAKER, EventJournal.Type.DROP, 0)) mine++;
+                    accepted.addAndGet(mine);
+                });
+                threads.add(t);
+                t.start();
+            }
+            Thread.sleep(round % 5 * 5);
+            store.close();
+            for (Thread t : threads) t.join();
+
+            try (HistoryStore again = new HistoryStore(d, QUIET)) {
+                HistoryStore.DeviceHistory h = again.devices().get(SPEAKER.key());
+                assertEquals(accepted.get(), h == null ? 0 : events(h), "round " + round);
+            }
+        }
+    }
+
+    static final DeviceId LONG = new DeviceId("x".repeat(40_000), "11:22:33:44:55:66");
+    static final DeviceId WIDE = new DeviceId("\u00e9".repeat(40_000), "22:33:44:55:66:77"); // 80000 UTF-8 bytes
+
+    static void writeOverlong(HistoryStore store) {
+        assertTrue(store.session(new SessionData(LONG)));
+        assertTrue(store.session(new SessionData(WIDE)));
+        assertTrue(store.event(5, SPEAKER, EventJournal.Type.FOUND, 1)); // after them in the log
+    }
+
+    static void checkOverlong(HistoryStore store) {
+        var devices = store.devices();
+        assertEquals("x".repeat(248), devices.get(LONG.key()).name);
+        assertEquals("\u00e9".repeat(248), devices.get(WIDE.key()).name);
+        assertEquals(1, devices.get(WIDE.key()).sessions);
+        assertEquals(1, events(devices.get(SPEAKER.key())));
+    }
+
+    @Test
+    void overlongNamesReplayFromTheLog(@TempDir Path dir) throws Exception {
+        HistoryStore store = new HistoryStore(dir, QUIET);
+        writeOverlong(store);
+        store.flush();
+        // as after a crash: the records are only in the log, no snapshot yet
+        try (HistoryStore again = new HistoryStore(dir, 1 << 30, QUIET)) {
+            checkOverlong(again);
+        }
+        store.close();
+    }
+
+    @Test
+    void overlongNamesSurviveCompaction(@TempDir Path dir) throws Exception {
+        try (HistoryStore store = new HistoryStore(dir, QUIET)) {
+            writeOverlong(store);
+        }
+        try (HistoryStore again = new HistoryStore(dir, QUIET)) {
+            checkOverlong(again);
+        }
+    }
+
+    @Test
+    void nothingIsAcceptedAfterClose(@TempDir Path dir) throws Exception {
+        HistoryStore store = new HistoryStore(dir, QUIET);
+        store.close();
+        assertFalse(store.event(1, SPEAKER, EventJournal.Type.DROP, 0));
+        assertEquals(0, store.dropped()); // closed, not failed
+    }
+}
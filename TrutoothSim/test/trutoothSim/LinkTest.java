@@ -0,0 +1,54 @@
+package trutoothSim;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class LinkTest {
+    static final Notice QUIET = new Notice(Notice.Level.OFF);
+
+    // answers findAsync from a script; the blocking forms aren't used
+    static class ScriptedScanner implements Scanner {
+        final AtomicInteger scans = new AtomicInteger();
+        final CompletableFuture<DeviceId>[] answers;
+
+        @SafeVarargs
+        ScriptedScanner(CompletableFuture<DeviceId>... answers) { this.answers = answers; }
+
+        @Override
+        public DeviceId find(String wantedName, String wantedAddr, int scanMs) { throw new UnsupportedOperationException(); }
+        @Override
+        public long scanWindowMs(int scanMs) { return 0; }
+        @Override
+        public DeviceId sight(String wantedName, String wantedAddr) { throw new UnsupportedOperationException(); }
+
+        @Override
+        public CompletableFuture<DeviceId> findAsync(String wantedName, String wantedAddr, int scanMs, TimerWheel wheel) {
+            int n = scans.getAndIncrement();
+            return answers[Math.min(n, answers.length - 1)];
+        }
+    }
+
+    @Test
+    void aScanThatFailsCountsAsAMissAndTheLinkScansAgain() {
+        SimClock clock = new SimClock(10, QUIET);
+        DeviceId speaker = DeviceId.of("Speaker", "AA:BB:CC:DD:EE:FF");
+        ScriptedScanner scanner = new ScriptedScanner(
+            CompletableFuture.failedFuture(new IOException("radio gone")),
+            CompletableFuture.completedFuture(speaker));
+        ConnectionSim conn = new ConnectionSim(QUIET, clock.wheel(), clock, new SimRandom(1).split());
+        Link link = new Link("Speaker", null, QUIET, scanner, conn, clock.wheel(), Latencies.fleet());
+
+        link.start();
+        clock.advance(30_000);
+
+        assertEquals(2, scanner.scans.get());
+        assertSame(speaker, link.device());
+        assertNotEquals(Link.State.SCANNING, link.state());
+        link.stop();
+    }
+}
@@ -0,0 +1,104 @@
+package trutoothSim;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+class NoticeTest {
+    static final int PRODUCERS = 4, EACH = 50_000;
+
+    static String[] run(Notice notice, ByteArrayOutputStream out) throws InterruptedException {
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            int me = p;
+            Thread t = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int m = 0; m < EACH; m++) notice.info("p{} m{}", me, m);
+            });
+            threads.add(t);
+            t.start();
+        }
+        go.countDown();
+        for (Thread t : threads) t.join();
+        notice.close();
+        return out.toString().split(System.lineSeparator());
+    }
+
+    @Test
+    void everyMessageArrivesOnceAndInOrderPerProducer() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Notice notice = new Notice(Notice.Level.INFO, 64, false, new PrintStream(out)); // small: producers wait a lot
+
+        String[] lines = run(notice, out);
+
+        assertEquals(PRODUCERS * EACH, lines.length);
+        int[] next = new int[PRODUCERS];
+        for (String line : lines) {
+            String[] f = line.substring("[INFO]  p".length()).split(" m");
+            int p = Integer.parseInt(f[0]);
+            assertEquals(next[p]++, Integer.parseInt(f[1]), "producer " + p + " out of order");
+        }
+        for (int n : next) assertEquals(EACH, n);
+        assertEquals(0, notice.dropped());
+    }
+
+    @Test
+    void droppedMessagesAreCountedAndReported() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Notice notice = new Notice(Notice.Level.INFO, 16, true, new PrintStream(out));
+
+        String[] lines = run(notice, out);
+
+        long delivered = 0, reported = 0;
+        for (String line : lines) {
+            if (line.endsWith(" log lines dropped (queue full)")) {
+                reported += Long.parseLong(line.substring("[WARN]  ".length(), line.indexOf(' ', "[WARN]  ".length())));
+            } else {
+                delivered++;
+            }
+        }
+        assertEquals(PRODUCERS * EACH, delivered + notice.dropped());
+        assertEquals(notice.dropped(), reported);
+    }
+
+    @Test
+    void belowTheLevelAndAfterCloseNothingIsPrinted() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Notice notice = new Notice(Notice.Level.WARN, 64, false, new PrintStream(out));
+
+        notice.info("quiet {}", 1);
+        notice.warn("loud {}", 2);
+        notice.close();
+        notice.warn("too late");
+
+        assertEquals("[WARN]  loud 2" + System.lineSeparator(), out.toString());
+    }
+
+    @Test
+    void closeEndsTheWriterAndOffHasNone() {
+        long before = writers();
+        Notice on = new Notice(Notice.Level.INFO, 64, false, new PrintStream(new ByteArrayOutputStream()));
+        assertEquals(before + 1, writers());
+        on.close();
+        assertEquals(before, writers());
+
+        new Notice(Notice.Level.OFF);
+        assertEquals(before, writers());
+    }
+
+    private static long writers() {
+        return Thread.getAllStackTraces().keySet().stream()
+                     .filter(t -> t.getName().equals("notice") && t.isAlive()).count();
+    }
+}
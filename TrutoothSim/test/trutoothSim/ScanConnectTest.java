@@ -0,0 +1,28 @@
+package trutoothSim;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+class ScanConnectTest {
+    static final Notice QUIET = new Notice(Notice.Level.OFF);
+
+    @Test
+    void runsOnAnyScannerAndTakesAFailedScanAsAMiss() {
+        SimClock clock = new SimClock(10, QUIET);
+        DeviceId speaker = DeviceId.of("Speaker", "AA:BB:CC:DD:EE:01");
+        LinkTest.ScriptedScanner scanner = new LinkTest.ScriptedScanner(
+            CompletableFuture.failedFuture(new IOException("radio gone")),
+            CompletableFuture.completedFuture(speaker));
+        Connection conn = new ConnectionSim(QUIET, clock.wheel(), clock, new SimRandom(3).split());
+
+        CompletableFuture<DeviceId> f = ScanConnect.run(scanner, conn, clock.wheel(), "Speaker", null, 3);
+        clock.advance(60_000);
+
+        assertEquals(2, scanner.scans.get());
+        assertSame(speaker, f.getNow(null));
+    }
+}
@@ -0,0 +1,36 @@
+package trutoothSim;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ScanStreamTest {
+    @Test
+    void closingWhileATimerIsMidSightingIsQuiet() {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        Notice notice = new Notice(Notice.Level.ERROR, 64, false, new PrintStream(log, true));
+        SimClock clock = new SimClock(10, notice);
+        ScanStream[] stream = new ScanStream[1];
+        // a close() from another thread, landing between the timer's closed
+        // check and its offer
+        ScannerSim scanner = new ScannerSim(notice, clock, new SimRandom(1)) {
+            @Override
+            public DeviceId sight(String wantedName, String wantedAddr) {
+                stream[0].close();
+                return DeviceId.of(wantedName, "AA:BB:CC:DD:EE:02");
+            }
+        };
+        stream[0] = scanner.stream(List.of("Speaker"), List.of(), 1000, clock.wheel(), 16);
+
+        clock.advance(5_000);
+        notice.close();
+
+        assertEquals("", log.toString());
+        assertEquals(0, stream[0].dropped());
+        assertEquals(0, clock.wheel().size()); // and it stopped rescheduling
+    }
+}
@@ -0,0 +1,42 @@
+package trutoothSim;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class ScannerSimTest {
+    static final Notice QUIET = new Notice(Notice.Level.OFF);
+
+    @Test
+    void aNameKeepsOneAddressAndNoTwoNamesShareOne() {
+        ScannerSim scanner = new ScannerSim(QUIET, Clock.SYSTEM, new SimRandom(42));
+        Set<Long> addresses = new HashSet<>();
+        for (int i = 0; i < 200_000; i++) addresses.add(scanner.addressOf("Speaker-" + i));
+
+        assertEquals(200_000, addresses.size());
+        assertNotEquals(scanner.addressOf("Aa"), scanner.addressOf("BB")); // same String.hashCode
+        assertEquals(scanner.addressOf("Speaker-7"), scanner.addressOf("Speaker-7"));
+    }
+
+    @Test
+    void theSameSeedGivesTheSameAddresses() {
+        ScannerSim a = new ScannerSim(QUIET, Clock.SYSTEM, new SimRandom(42));
+        ScannerSim b = new ScannerSim(QUIET, Clock.SYSTEM, new SimRandom(42));
+
+        assertEquals(a.addressOf("Speaker"), b.addressOf("Speaker"));
+    }
+
+    @Test
+    void sightingsDoNotGrowTheInternTable() {
+        ScannerSim scanner = new ScannerSim(QUIET, Clock.SYSTEM, new SimRandom(7));
+        Set<DeviceId> seen = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            DeviceId d = scanner.sight("Speaker", null);
+            if (d != null) seen.add(d);
+        }
+        assertEquals(1, seen.size());
+    }
+}
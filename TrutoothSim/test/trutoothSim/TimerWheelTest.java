@@ -0,0 +1,94 @@
+package trutoothSim;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TimerWheelTest {
+    static final Notice QUIET = new Notice(Notice.Level.OFF);
+    static final long TICK = 10;
+
+    static final class Rec {
+        long due = -1, firedAt = -1;
+        int fired = 0;
+        boolean cancelled = false;
+        TimerWheel.Timeout timeout;
+    }
+
+    // mostly link-sized waits, some that cascade down from the upper
+    // levels, and a few past the top level in the overflow list
+    static long delay(Random rng) {
+        int r = rng.nextInt(1000);
+        if (r < 700) return rng.nextInt(30_000);
+        if (r < 990) return rng.nextInt(20_000_000);
+        if (r < 999) return rng.nextInt((int) TICK * 2); // around one tick
+        return 200_000_000L + rng.nextInt(100_000_000);
+    }
+
+    @Test
+    void randomTimersNeverFireEarlyAndNoneAreLost() {
+        SimClock clock = new SimClock(TICK, QUIET);
+        TimerWheel wheel = clock.wheel();
+        Random rng = new Random(42);
+        List<Rec> recs = new ArrayList<>();
+
+        while (recs.size() < 200_000) {
+            // a burst scheduled at this moment, some of them scheduling a
+            // follow-up from inside the task the way Link does
+            for (int k = 0; k < 100; k++) schedule(wheel, clock, rng, recs, rng.nextInt(20) == 0);
+            Rec old = recs.get(rng.nextInt(recs.size()));
+            if (old.fired == 0 && !old.cancelled) {
+                assertTrue(old.timeout.cancel());
+                old.cancelled = true;
+            }
+            clock.advance(rng.nextInt(50));
+        }
+        while (wheel.size() > 0) clock.advance(60_000);
+
+        long maxLate = 0;
+        for (Rec r : recs) {
+            if (r.cancelled) {
+                assertEquals(0, r.fired);
+                continue;
+            }
+            assertEquals(1, r.fired, "lost or repeated");
+            assertTrue(r.firedAt >= r.due, "fired " + (r.due - r.firedAt) + " ms early");
+            maxLate = Math.max(maxLate, r.firedAt - r.due);
+        }
+        assertTrue(maxLate < 2 * TICK, "fired up to " + maxLate + " ms late");
+    }
+
+    private void schedule(TimerWheel wheel, SimClock clock, Random rng, List<Rec> recs, boolean chain) {
+        Rec r = new Rec();
+        long d = delay(rng);
+        r.due = clock.now() + d;
+        recs.add(r);
+        r.timeout = wheel.schedule(d, () -> {
+            r.fired++;
+            r.firedAt = clock.now();
+            if (chain) schedule(wheel, clock, rng, recs, false);
+        });
+    }
+
+    @Test
+    void aCancelledTimerNeverRunsAndCancelTellsWhoWon() {
+        SimClock clock = new SimClock(TICK, QUIET);
+        int[] runs = new int[1];
+        TimerWheel.Timeout t = clock.wheel().schedule(100, () -> runs[0]++);
+
+        assertTrue(t.cancel());
+        assertFalse(t.cancel());
+        clock.advance(1_000);
+        assertEquals(0, runs[0]);
+        assertEquals(0, clock.wheel().size());
+
+        TimerWheel.Timeout u = clock.wheel().schedule(100, () -> runs[0]++);
+        clock.advance(1_000);
+        assertEquals(1, runs[0]);
+        assertFalse(u.cancel()); // too late: it ran
+    }
+}